@@ -0,0 +1,67 @@
+#!/usr/bin/env bash
+#
+# Measures time from process launch to the first successful POST /api/notifications (HTTP 201).
+#
+# Usage: scripts/startup-benchmark.sh [jvm|faststart|native] [runs]
+#   jvm        plain executable jar          (mvn package)
+#   faststart  AOT + AppCDS archive          (mvn -Pfaststart package)
+#   native     GraalVM native executable     (mvn -Pnative native:compile)
+
+set -euo pipefail
+
+MODE="${1:-jvm}"
+RUNS="${2:-5}"
+PORT="${PORT:-18084}"
+TARGET_DIR="$(cd "$(dirname "$0")/.." && pwd)/target"
+JAR_NAME="notification-service-0.0.1-SNAPSHOT"
+
+case "$MODE" in
+    jvm)
+        CMD=(java -jar "$TARGET_DIR/$JAR_NAME.jar")
+        ;;
+    faststart)
+        CMD=(java -XX:SharedArchiveFile="$TARGET_DIR/cds/application.jsa" -Xshare:auto
+             -Dspring.aot.enabled=true -Dspring.profiles.active=faststart
+             -jar "$TARGET_DIR/cds/$JAR_NAME.jar")
+        ;;
+    native)
+        CMD=("$TARGET_DIR/notification-service" -Dspring.profiles.active=faststart)
+        ;;
+    *)
+        echo "Unknown mode: $MODE (expected jvm, faststart or native)" >&2
+        exit 1
+        ;;
+esac
+
+now_ms() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+total=0
+for run in $(seq 1 "$RUNS"); do
+    start=$(now_ms)
+    "${CMD[@]}" --server.port="$PORT" > /dev/null 2>&1 &
+    pid=$!
+
+    status=000
+    while [ "$status" != "201" ]; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "Application exited before serving a request" >&2
+            exit 1
+        fi
+        status=$(curl -s -o /dev/null -w '%{http_code}' -X POST "http://localhost:$PORT/api/notifications" \
+            -H "Content-Type: application/json" \
+            -d "{\"transactionId\":\"BENCH-$run\",\"notificationType\":\"PAYMENT_SUCCESS\",\"recipient\":\"bench@example.com\",\"subject\":\"Startup\",\"message\":\"Startup benchmark\"}" \
+            || true)
+        [ "$status" = "201" ] || sleep 0.01
+    done
+    elapsed=$(( $(now_ms) - start ))
+
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+
+    echo "Run $run: first successful POST after ${elapsed} ms"
+    total=$(( total + elapsed ))
+done
+
+echo "Mode $MODE: average ${RUNS} runs = $(( total / RUNS )) ms"
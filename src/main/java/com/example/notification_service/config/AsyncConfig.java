@@ -1,26 +1,76 @@
 package com.example.notification_service.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
-import java.util.concurrent.Executor;
-
 @Configuration
 @EnableAsync
 @EnableScheduling
 public class AsyncConfig {
     
-    @Bean(name = "notificationTaskExecutor")
-    public Executor notificationTaskExecutor() {
+    // One bulkhead per delivery channel so a slow transport cannot starve the others.
+    // concurrency is only the starting size; AdaptiveConcurrencyLimiter resizes the pool at runtime
+    @Bean(name = "emailDeliveryExecutor")
+    public ThreadPoolTaskExecutor emailDeliveryExecutor(
+            @Value("${notification.channel.email.concurrency:10}") int concurrency,
+            @Value("${notification.channel.email.queue-capacity:100}") int queueCapacity) {
+        return deliveryExecutor("Notification-Email-", concurrency, queueCapacity);
+    }
+    
+    @Bean(name = "smsDeliveryExecutor")
+    public ThreadPoolTaskExecutor smsDeliveryExecutor(
+            @Value("${notification.channel.sms.concurrency:5}") int concurrency,
+            @Value("${notification.channel.sms.queue-capacity:100}") int queueCapacity) {
+        return deliveryExecutor("Notification-Sms-", concurrency, queueCapacity);
+    }
+    
+    @Bean(name = "pushDeliveryExecutor")
+    public ThreadPoolTaskExecutor pushDeliveryExecutor(
+            @Value("${notification.channel.push.concurrency:10}") int concurrency,
+            @Value("${notification.channel.push.queue-capacity:100}") int queueCapacity) {
+        return deliveryExecutor("Notification-Push-", concurrency, queueCapacity);
+    }
+    
+    // Replays run one at a time on their own thread and feed the delivery executors at a throttled rate
+    @Bean(name = "deadLetterReplayExecutor")
+    public ThreadPoolTaskExecutor deadLetterReplayExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(4);
+        executor.setThreadNamePrefix("DeadLetterReplay-");
+        executor.initialize();
+        return executor;
+    }
+    
+    // Writes to SSE subscribers; idle subscriptions hold no thread, only a bounded fan-out queue
+    @Bean(name = "sseEventExecutor")
+    public ThreadPoolTaskExecutor sseEventExecutor(
+            @Value("${notification.sse.fan-out-threads:2}") int threads,
+            @Value("${notification.sse.fan-out-queue-capacity:10000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("SseFanOut-");
+        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+    
+    private ThreadPoolTaskExecutor deliveryExecutor(String threadNamePrefix, int concurrency, int queueCapacity) {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(5);
-        executor.setMaxPoolSize(10);
-        executor.setQueueCapacity(100);
-        executor.setThreadNamePrefix("Notification-");
-        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        // Abort rather than run on the caller, which would leak one channel's latency into shared threads;
+        // NotificationDispatcher defers rejected notifications to the retry scan
+        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.AbortPolicy());
         executor.initialize();
         return executor;
     }
@@ -0,0 +1,75 @@
+package com.example.notification_service.config;
+
+import com.example.notification_service.jfr.NotificationCreateEvent;
+import com.example.notification_service.jfr.QueueWaitEvent;
+import com.example.notification_service.jfr.RetryScanEvent;
+import com.example.notification_service.jfr.SendAttemptEvent;
+import com.example.notification_service.jfr.StatusPersistEvent;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Always-on Flight Recorder recording for the jfr profile: the JDK "default" settings (GC, locks,
+ * I/O) plus the notification lifecycle events, kept in a bounded on-disk ring buffer.
+ * Dump it while running with jcmd {@literal <pid>} JFR.dump name=notification-service; it is also
+ * written to notification.jfr.destination on shutdown.
+ */
+@org.springframework.context.annotation.Configuration
+@Profile("jfr")
+public class FlightRecorderConfig {
+    
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecorderConfig.class);
+    
+    private static final List<Class<? extends Event>> LIFECYCLE_EVENTS = List.of(
+            NotificationCreateEvent.class,
+            QueueWaitEvent.class,
+            SendAttemptEvent.class,
+            StatusPersistEvent.class,
+            RetryScanEvent.class);
+    
+    private final Recording recording;
+    
+    public FlightRecorderConfig(@Value("${notification.jfr.destination:notification-service.jfr}") String destination,
+                                @Value("${notification.jfr.max-age-ms:3600000}") long maxAgeMs,
+                                @Value("${notification.jfr.max-size-mb:250}") long maxSizeMb,
+                                @Value("${notification.jfr.threshold-ms:0}") long thresholdMs)
+            throws IOException, ParseException {
+        recording = new Recording(Configuration.getConfiguration("default"));
+        recording.setName("notification-service");
+        recording.setToDisk(true);
+        recording.setMaxAge(Duration.ofMillis(maxAgeMs));
+        recording.setMaxSize(maxSizeMb * 1024 * 1024);
+        recording.setDestination(Path.of(destination));
+        for (Class<? extends Event> eventClass : LIFECYCLE_EVENTS) {
+            // Register up front so the events show up in JMC before the first one fires
+            FlightRecorder.register(eventClass);
+            recording.enable(eventClass).withThreshold(Duration.ofMillis(thresholdMs));
+        }
+        recording.start();
+        logger.info("Started flight recording '{}' with notification lifecycle events, writing to {} on shutdown",
+                recording.getName(), destination);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        // Stopping writes the recording to its destination; on JVM exit JFR's own shutdown hook may have done it already
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        recording.close();
+    }
+}
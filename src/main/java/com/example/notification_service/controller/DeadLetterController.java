@@ -0,0 +1,40 @@
+package com.example.notification_service.controller;
+
+import com.example.notification_service.dto.DeadLetterReplayRequest;
+import com.example.notification_service.dto.DeadLetterReplayResponse;
+import com.example.notification_service.service.DeadLetterService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/notifications/dead-letters")
+public class DeadLetterController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DeadLetterController.class);
+    
+    @Autowired
+    private DeadLetterService deadLetterService;
+    
+    @PostMapping("/replay")
+    public ResponseEntity<DeadLetterReplayResponse> replay(@Valid @RequestBody DeadLetterReplayRequest request) {
+        logger.info("Received dead-letter replay request for type: {}, reason: {}, from: {}, to: {}",
+                request.getNotificationType(), request.getFailureReason(), request.getFrom(), request.getTo());
+        
+        DeadLetterReplayResponse response = deadLetterService.startReplay(request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+    
+    @GetMapping("/replay/{jobId}")
+    public ResponseEntity<DeadLetterReplayResponse> getReplay(@PathVariable String jobId) {
+        Optional<DeadLetterReplayResponse> response = deadLetterService.getReplay(jobId);
+        return response.map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
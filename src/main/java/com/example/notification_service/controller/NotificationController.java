@@ -2,15 +2,22 @@ package com.example.notification_service.controller;
 
 import com.example.notification_service.dto.NotificationRequest;
 import com.example.notification_service.dto.NotificationResponse;
+import com.example.notification_service.entity.Notification.Channel;
 import com.example.notification_service.entity.Notification.NotificationStatus;
+import com.example.notification_service.service.AdmissionControlService;
+import com.example.notification_service.service.DeliveryChannelRouter;
+import com.example.notification_service.service.NotificationEventBroker;
+import com.example.notification_service.service.NotificationResponseCache;
 import com.example.notification_service.service.NotificationService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Optional;
@@ -24,25 +31,45 @@ public class NotificationController {
     @Autowired
     private NotificationService notificationService;
     
+    @Autowired
+    private AdmissionControlService admissionControlService;
+    
+    @Autowired
+    private DeliveryChannelRouter deliveryChannelRouter;
+    
+    @Autowired
+    private NotificationResponseCache notificationResponseCache;
+    
+    @Autowired
+    private NotificationEventBroker notificationEventBroker;
+    
     @PostMapping
     public ResponseEntity<NotificationResponse> createNotification(@Valid @RequestBody NotificationRequest request) {
         logger.info("Received notification creation request for transaction: {}", request.getTransactionId());
         
+        // Shed before doing any DB work; throws LoadSheddingException (429) when overloaded
+        Channel channel = deliveryChannelRouter.resolve(request.getChannel(), request.getNotificationType());
+        admissionControlService.admit(AdmissionControlService.priorityOf(request.getNotificationType()), channel);
+        
         try {
             NotificationResponse response = notificationService.createNotification(request);
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (IllegalArgumentException e) {
+            // Invalid recipient for the channel; GlobalExceptionHandler turns this into a 400
+            throw e;
         } catch (Exception e) {
             logger.error("Failed to create notification for transaction: {}", request.getTransactionId(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
     
+    // Served from pre-serialized JSON in NotificationResponseCache; misses read through to the database
     @GetMapping("/{id}")
-    public ResponseEntity<NotificationResponse> getNotification(@PathVariable Long id) {
-        logger.info("Retrieving notification with ID: {}", id);
+    public ResponseEntity<byte[]> getNotification(@PathVariable Long id) {
+        logger.debug("Retrieving notification with ID: {}", id);
         
-        Optional<NotificationResponse> response = notificationService.getNotification(id);
-        return response.map(ResponseEntity::ok)
+        Optional<byte[]> response = notificationResponseCache.getOrLoad(id, notificationService::getNotification);
+        return response.map(body -> ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body))
                 .orElse(ResponseEntity.notFound().build());
     }
     
@@ -68,10 +95,32 @@ public class NotificationController {
         return ResponseEntity.ok(notifications);
     }
     
+    // Server-Sent Events stream of status changes; completes once the notification is SENT or FAILED
+    @GetMapping(path = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamNotificationEvents(@PathVariable Long id) {
+        logger.debug("Subscribing to events for notification ID: {}", id);
+        
+        return notificationEventBroker.subscribeToNotification(id, notificationService::getNotification)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    // Stays open until the client disconnects or the SSE timeout elapses, since new notifications may join the transaction
+    @GetMapping(path = "/transaction/{transactionId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTransactionEvents(@PathVariable String transactionId) {
+        logger.debug("Subscribing to events for transaction ID: {}", transactionId);
+        
+        return notificationEventBroker.subscribeToTransaction(transactionId, notificationService::getNotificationsByTransactionId);
+    }
+    
     @PostMapping("/payment-callback")
     public ResponseEntity<String> handlePaymentCallback(@RequestBody PaymentCallbackRequest callback) {
         logger.info("Received payment callback for transaction: {}", callback.getTransactionId());
         
+        // Payment callbacks are shed last. They always go out by email: the router refuses to start with PAYMENT_*
+        // types routed to SMS or push, since the callback carries no phone number or device token
+        admissionControlService.admit(AdmissionControlService.Priority.HIGH, Channel.EMAIL);
+        
         try {
             // Create notification based on payment status
             NotificationRequest notificationRequest = new NotificationRequest();
@@ -90,6 +139,8 @@ public class NotificationController {
             notificationService.createNotification(notificationRequest);
             
             return ResponseEntity.ok("Callback processed successfully");
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Failed to process payment callback for transaction: {}", callback.getTransactionId(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to process callback");
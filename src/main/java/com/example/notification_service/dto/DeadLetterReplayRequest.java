@@ -0,0 +1,64 @@
+package com.example.notification_service.dto;
+
+import com.example.notification_service.entity.Notification.FailureReason;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import java.time.LocalDateTime;
+
+public class DeadLetterReplayRequest {
+    
+    private String notificationType;
+    
+    private FailureReason failureReason;
+    
+    // Matches on deadLetteredAt (when the notification failed for good), from inclusive and to exclusive
+    private LocalDateTime from;
+    
+    private LocalDateTime to;
+    
+    @Min(value = 1, message = "Chunk size must be at least 1")
+    @Max(value = 1000, message = "Chunk size must not exceed 1000")
+    private Integer chunkSize;
+    
+    public DeadLetterReplayRequest() {}
+    
+    public String getNotificationType() {
+        return notificationType;
+    }
+    
+    public void setNotificationType(String notificationType) {
+        this.notificationType = notificationType;
+    }
+    
+    public FailureReason getFailureReason() {
+        return failureReason;
+    }
+    
+    public void setFailureReason(FailureReason failureReason) {
+        this.failureReason = failureReason;
+    }
+    
+    public LocalDateTime getFrom() {
+        return from;
+    }
+    
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+    
+    public LocalDateTime getTo() {
+        return to;
+    }
+    
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+    
+    public Integer getChunkSize() {
+        return chunkSize;
+    }
+    
+    public void setChunkSize(Integer chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+}
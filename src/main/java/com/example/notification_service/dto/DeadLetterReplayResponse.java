@@ -0,0 +1,81 @@
+package com.example.notification_service.dto;
+
+import java.time.LocalDateTime;
+
+public class DeadLetterReplayResponse {
+    
+    private String jobId;
+    private String status;
+    private long matched;
+    private long requeued;
+    private int chunksCompleted;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String errorMessage;
+    
+    public DeadLetterReplayResponse() {}
+    
+    public String getJobId() {
+        return jobId;
+    }
+    
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public long getMatched() {
+        return matched;
+    }
+    
+    public void setMatched(long matched) {
+        this.matched = matched;
+    }
+    
+    public long getRequeued() {
+        return requeued;
+    }
+    
+    public void setRequeued(long requeued) {
+        this.requeued = requeued;
+    }
+    
+    public int getChunksCompleted() {
+        return chunksCompleted;
+    }
+    
+    public void setChunksCompleted(int chunksCompleted) {
+        this.chunksCompleted = chunksCompleted;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+    
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+    
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+    
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+    
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.notification_service.dto;
 
-import jakarta.validation.constraints.Email;
+import com.example.notification_service.entity.Notification;
+import com.example.notification_service.entity.Notification.Channel;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Size;
@@ -13,8 +14,12 @@ public class NotificationRequest {
     @NotBlank(message = "Notification type is required")
     private String notificationType;
     
+    // Optional; when absent the channel is routed from notificationType
+    private Channel channel;
+    
+    // Format is validated by the delivery channel (email address, phone number or device token)
     @NotBlank(message = "Recipient is required")
-    @Email(message = "Invalid email format")
+    @Size(max = Notification.RECIPIENT_MAX_LENGTH, message = "Recipient must not exceed 255 characters")
     private String recipient;
     
     @Size(max = 200, message = "Subject must not exceed 200 characters")
@@ -43,6 +48,14 @@ public class NotificationRequest {
         this.notificationType = notificationType;
     }
     
+    public Channel getChannel() {
+        return channel;
+    }
+    
+    public void setChannel(Channel channel) {
+        this.channel = channel;
+    }
+    
     public String getRecipient() {
         return recipient;
     }
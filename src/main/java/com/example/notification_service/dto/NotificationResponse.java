@@ -1,6 +1,8 @@
 package com.example.notification_service.dto;
 
+import com.example.notification_service.entity.Notification.Channel;
 import com.example.notification_service.entity.Notification.NotificationStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import java.time.LocalDateTime;
 
 public class NotificationResponse {
@@ -8,8 +10,11 @@ public class NotificationResponse {
     private Long id;
     private String transactionId;
     private String notificationType;
+    private Channel channel;
     private String recipient;
     private String subject;
+    // Omitted from list views, which never load the message body
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private String message;
     private NotificationStatus status;
     private Integer retryCount;
@@ -45,6 +50,14 @@ public class NotificationResponse {
         this.notificationType = notificationType;
     }
     
+    public Channel getChannel() {
+        return channel;
+    }
+    
+    public void setChannel(Channel channel) {
+        this.channel = channel;
+    }
+    
     public String getRecipient() {
         return recipient;
     }
@@ -0,0 +1,39 @@
+package com.example.notification_service.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "cluster_nodes")
+public class ClusterNode {
+    
+    @Id
+    @Column(name = "node_id")
+    private String nodeId;
+    
+    @Column(name = "last_heartbeat", nullable = false)
+    private LocalDateTime lastHeartbeat;
+    
+    public ClusterNode() {}
+    
+    public ClusterNode(String nodeId) {
+        this.nodeId = nodeId;
+    }
+    
+    // Getters and Setters
+    public String getNodeId() {
+        return nodeId;
+    }
+    
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+    
+    public LocalDateTime getLastHeartbeat() {
+        return lastHeartbeat;
+    }
+    
+    public void setLastHeartbeat(LocalDateTime lastHeartbeat) {
+        this.lastHeartbeat = lastHeartbeat;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.notification_service.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores text as a one-byte format header followed by either raw UTF-8 or a Deflate stream.
+ * Bodies below the threshold are kept raw since compression would not pay for itself.
+ * Deflate uses a preset dictionary built from the payment callback message templates
+ * (NotificationController.handlePaymentCallback), so even short notification bodies compress
+ * well. The header byte identifies the dictionary; add a new format rather than editing an
+ * existing dictionary, or stored rows become unreadable.
+ */
+@Converter
+public class CompressedTextConverter implements AttributeConverter<String, byte[]> {
+    
+    static final int COMPRESSION_THRESHOLD_BYTES = 64;
+    
+    private static final byte FORMAT_RAW = 0;
+    private static final byte FORMAT_DEFLATE_DICT_V1 = 1;
+    
+    // Exactly the fixed parts of the handlePaymentCallback messages. Deflate favours matches close to the end of
+    // the dictionary, so the most frequent phrases go last (successes outnumber failures, and both share the prefix)
+    private static final byte[] DICTIONARY_V1 = String.join("",
+            " has failed. Please try again.",
+            " has been processed successfully.",
+            "Your payment for transaction ").getBytes(StandardCharsets.UTF_8);
+    
+    @Override
+    public byte[] convertToDatabaseColumn(String attribute) {
+        if (attribute == null) {
+            return null;
+        }
+        byte[] raw = attribute.getBytes(StandardCharsets.UTF_8);
+        if (raw.length >= COMPRESSION_THRESHOLD_BYTES) {
+            byte[] compressed = deflate(raw);
+            if (compressed.length < raw.length) {
+                return withHeader(FORMAT_DEFLATE_DICT_V1, compressed, compressed.length);
+            }
+        }
+        return withHeader(FORMAT_RAW, raw, raw.length);
+    }
+    
+    @Override
+    public String convertToEntityAttribute(byte[] dbData) {
+        if (dbData == null) {
+            return null;
+        }
+        if (dbData.length == 0) {
+            return "";
+        }
+        switch (dbData[0]) {
+            case FORMAT_RAW:
+                return new String(dbData, 1, dbData.length - 1, StandardCharsets.UTF_8);
+            case FORMAT_DEFLATE_DICT_V1:
+                return new String(inflate(dbData, DICTIONARY_V1), StandardCharsets.UTF_8);
+            default:
+                throw new IllegalStateException("Unknown compressed text format: " + dbData[0]);
+        }
+    }
+    
+    private static byte[] withHeader(byte format, byte[] body, int length) {
+        byte[] result = new byte[length + 1];
+        result[0] = format;
+        System.arraycopy(body, 0, result, 1, length);
+        return result;
+    }
+    
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setDictionary(DICTIONARY_V1);
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length);
+            byte[] buffer = new byte[512];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+    
+    private static byte[] inflate(byte[] dbData, byte[] dictionary) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(dbData, 1, dbData.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(dbData.length * 3);
+            byte[] buffer = new byte[512];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0) {
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(dictionary);
+                    } else if (inflater.needsInput()) {
+                        throw new IllegalStateException("Truncated compressed text");
+                    }
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed text", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -2,12 +2,21 @@ package com.example.notification_service.entity;
 
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 @Entity
 @Table(name = "notifications", 
-       uniqueConstraints = @UniqueConstraint(columnNames = {"transaction_id", "notification_type"}))
+       uniqueConstraints = @UniqueConstraint(columnNames = {"transaction_id", "notification_type"}),
+       indexes = {
+           @Index(name = "idx_notifications_partition", columnList = "partition_id, status"),
+           @Index(name = "idx_notifications_status_created", columnList = "status, created_at"),
+           @Index(name = "idx_notifications_dead_letter", columnList = "status, failure_reason, dead_lettered_at")
+       })
 public class Notification {
     
+    // Column length of recipient; longer device tokens or addresses are rejected before insert
+    public static final int RECIPIENT_MAX_LENGTH = 255;
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -18,13 +27,24 @@ public class Notification {
     @Column(name = "notification_type", nullable = false)
     private String notificationType;
     
-    @Column(name = "recipient", nullable = false)
+    @Column(name = "partition_id")
+    private Integer partitionId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "channel")
+    private Channel channel = Channel.EMAIL;
+    
+    @Column(name = "recipient", nullable = false, length = RECIPIENT_MAX_LENGTH)
     private String recipient;
     
     @Column(name = "subject")
     private String subject;
     
-    @Column(name = "message", columnDefinition = "TEXT")
+    // Compressed into a BLOB and only fetched when accessed (needs bytecode enhancement, see pom.xml)
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(name = "message")
     private String message;
     
     @Enumerated(EnumType.STRING)
@@ -49,18 +69,62 @@ public class Notification {
     @Column(name = "error_message")
     private String errorMessage;
     
+    @Enumerated(EnumType.STRING)
+    @Column(name = "failure_reason")
+    private FailureReason failureReason;
+    
+    @Column(name = "dead_lettered_at")
+    private LocalDateTime deadLetteredAt;
+    
+    // Bumped on every change; a delivery task only sends if the row is still at the version it was dispatched with
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+    
     public Notification() {
-        this.createdAt = LocalDateTime.now();
+        this.createdAt = now();
         this.status = NotificationStatus.PENDING;
     }
     
     public enum NotificationStatus {
         PENDING,
+        SENDING,
         SENT,
         FAILED,
         RETRYING
     }
     
+    public enum Channel {
+        EMAIL,
+        SMS,
+        PUSH
+    }
+    
+    public enum FailureReason {
+        TIMEOUT,
+        PROVIDER_UNAVAILABLE,
+        INTERRUPTED,
+        UNKNOWN;
+        
+        // Derived from the error message recorded by the last failed attempt
+        public static FailureReason classify(String errorMessage) {
+            if (errorMessage == null) {
+                return UNKNOWN;
+            }
+            String message = errorMessage.toLowerCase();
+            if (message.contains("timeout") || message.contains("timed out")) {
+                return TIMEOUT;
+            }
+            if (message.contains("unavailable") || message.contains("refused")) {
+                return PROVIDER_UNAVAILABLE;
+            }
+            if (message.contains("interrupted")) {
+                return INTERRUPTED;
+            }
+            return UNKNOWN;
+        }
+    }
+    
     // Getters and Setters
     public Long getId() {
         return id;
@@ -86,6 +150,22 @@ public class Notification {
         this.notificationType = notificationType;
     }
     
+    public Integer getPartitionId() {
+        return partitionId;
+    }
+    
+    public void setPartitionId(Integer partitionId) {
+        this.partitionId = partitionId;
+    }
+    
+    public Channel getChannel() {
+        return channel;
+    }
+    
+    public void setChannel(Channel channel) {
+        this.channel = channel;
+    }
+    
     public String getRecipient() {
         return recipient;
     }
@@ -116,7 +196,7 @@ public class Notification {
     
     public void setStatus(NotificationStatus status) {
         this.status = status;
-        this.updatedAt = LocalDateTime.now();
+        this.updatedAt = now();
     }
     
     public Integer getRetryCount() {
@@ -140,7 +220,7 @@ public class Notification {
     }
     
     public void setCreatedAt(LocalDateTime createdAt) {
-        this.createdAt = createdAt;
+        this.createdAt = toColumnPrecision(createdAt);
     }
     
     public LocalDateTime getUpdatedAt() {
@@ -148,7 +228,7 @@ public class Notification {
     }
     
     public void setUpdatedAt(LocalDateTime updatedAt) {
-        this.updatedAt = updatedAt;
+        this.updatedAt = toColumnPrecision(updatedAt);
     }
     
     public LocalDateTime getSentAt() {
@@ -156,7 +236,7 @@ public class Notification {
     }
     
     public void setSentAt(LocalDateTime sentAt) {
-        this.sentAt = sentAt;
+        this.sentAt = toColumnPrecision(sentAt);
     }
     
     public String getErrorMessage() {
@@ -167,8 +247,39 @@ public class Notification {
         this.errorMessage = errorMessage;
     }
     
+    public FailureReason getFailureReason() {
+        return failureReason;
+    }
+    
+    public void setFailureReason(FailureReason failureReason) {
+        this.failureReason = failureReason;
+    }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public LocalDateTime getDeadLetteredAt() {
+        return deadLetteredAt;
+    }
+    
+    public void setDeadLetteredAt(LocalDateTime deadLetteredAt) {
+        this.deadLetteredAt = toColumnPrecision(deadLetteredAt);
+    }
+    
     @PreUpdate
     public void preUpdate() {
-        this.updatedAt = LocalDateTime.now();
+        this.updatedAt = now();
+    }
+    
+    // Also used by bulk status updates, which bypass @PreUpdate
+    public static LocalDateTime now() {
+        return toColumnPrecision(LocalDateTime.now());
+    }
+    
+    // Timestamp columns hold microseconds; matching that here keeps responses built from this instance
+    // (cache write-through, SSE events) identical to ones built from a reloaded row
+    private static LocalDateTime toColumnPrecision(LocalDateTime value) {
+        return value != null ? value.truncatedTo(ChronoUnit.MICROS) : null;
     }
 }
@@ -0,0 +1,50 @@
+package com.example.notification_service.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "partition_leases")
+public class PartitionLease {
+    
+    @Id
+    @Column(name = "partition_id")
+    private Integer partitionId;
+    
+    @Column(name = "owner_node_id")
+    private String ownerNodeId;
+    
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+    
+    public PartitionLease() {}
+    
+    public PartitionLease(Integer partitionId) {
+        this.partitionId = partitionId;
+    }
+    
+    // Getters and Setters
+    public Integer getPartitionId() {
+        return partitionId;
+    }
+    
+    public void setPartitionId(Integer partitionId) {
+        this.partitionId = partitionId;
+    }
+    
+    public String getOwnerNodeId() {
+        return ownerNodeId;
+    }
+    
+    public void setOwnerNodeId(String ownerNodeId) {
+        this.ownerNodeId = ownerNodeId;
+    }
+    
+    public LocalDateTime getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+    
+    public void setLeaseExpiresAt(LocalDateTime leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.notification_service.event;
+
+import com.example.notification_service.dto.NotificationResponse;
+
+/**
+ * Published inside the transaction that changed a notification's status; listeners act after commit.
+ */
+public class NotificationStatusChangedEvent {
+    
+    private final NotificationResponse notification;
+    
+    public NotificationStatusChangedEvent(NotificationResponse notification) {
+        this.notification = notification;
+    }
+    
+    public NotificationResponse getNotification() {
+        return notification;
+    }
+}
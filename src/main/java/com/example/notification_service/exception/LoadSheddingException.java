@@ -0,0 +1,18 @@
+package com.example.notification_service.exception;
+
+/**
+ * Thrown when admission control rejects a request; mapped to 429 Too Many Requests.
+ */
+public class LoadSheddingException extends RuntimeException {
+    
+    private final long retryAfterSeconds;
+    
+    public LoadSheddingException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
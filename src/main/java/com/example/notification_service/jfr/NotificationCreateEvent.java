@@ -0,0 +1,27 @@
+package com.example.notification_service.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("com.example.notification.Create")
+@Label("Notification Create")
+@Description("POST /api/notifications inside the service transaction, excluding the commit")
+public class NotificationCreateEvent extends NotificationJfrEvent {
+    
+    @Label("Transaction ID")
+    public String transactionId;
+    
+    @Label("Idempotency Hit")
+    @Description("An existing notification was returned instead of inserting a new one")
+    public boolean idempotencyHit;
+    
+    @Label("Idempotency Check Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    public long idempotencyCheckDuration;
+    
+    @Label("Insert Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    public long insertDuration;
+}
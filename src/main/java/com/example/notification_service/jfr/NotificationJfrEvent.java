@@ -0,0 +1,26 @@
+package com.example.notification_service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Base for the notification lifecycle Flight Recorder events. They are disabled by default,
+ * so an ordinary recording costs nothing; the jfr Spring profile turns them on.
+ */
+@Category("Notification Service")
+@Enabled(false)
+@StackTrace(false)
+public abstract class NotificationJfrEvent extends Event {
+    
+    @Label("Notification ID")
+    public long notificationId;
+    
+    @Label("Notification Type")
+    public String notificationType;
+    
+    @Label("Channel")
+    public String channel;
+}
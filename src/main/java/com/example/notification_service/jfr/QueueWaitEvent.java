@@ -0,0 +1,15 @@
+package com.example.notification_service.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.example.notification.QueueWait")
+@Label("Notification Queue Wait")
+@Description("Time between handing a notification to its channel executor and a delivery thread picking it up")
+public class QueueWaitEvent extends NotificationJfrEvent {
+    
+    @Label("Queue Depth")
+    @Description("Tasks already queued on the channel executor at submit time")
+    public int queueDepth;
+}
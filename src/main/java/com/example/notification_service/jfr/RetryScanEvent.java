@@ -0,0 +1,35 @@
+package com.example.notification_service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// A batch spans many notifications, so this one has counts rather than a notification ID
+@Name("com.example.notification.RetryScan")
+@Label("Notification Retry Scan")
+@Description("One run of the scheduled retry scan")
+@Category("Notification Service")
+@Enabled(false)
+@StackTrace(false)
+public class RetryScanEvent extends Event {
+    
+    @Label("Batch Size")
+    public int batchSize;
+    
+    @Label("Owned Partitions")
+    @Description("Partitions scanned in cluster mode, -1 when running standalone")
+    public int ownedPartitions = -1;
+    
+    @Label("Query Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    public long queryDuration;
+    
+    @Label("Requeue Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    public long requeueDuration;
+}
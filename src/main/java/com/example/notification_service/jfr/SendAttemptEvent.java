@@ -0,0 +1,20 @@
+package com.example.notification_service.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.example.notification.SendAttempt")
+@Label("Notification Send Attempt")
+@Description("One call to the delivery channel's transport")
+public class SendAttemptEvent extends NotificationJfrEvent {
+    
+    @Label("Attempt")
+    public int attempt;
+    
+    @Label("Success")
+    public boolean success;
+    
+    @Label("Error Message")
+    public String errorMessage;
+}
@@ -0,0 +1,14 @@
+package com.example.notification_service.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.example.notification.StatusPersist")
+@Label("Notification Status Persist")
+@Description("Flushing the status update after a delivery attempt")
+public class StatusPersistEvent extends NotificationJfrEvent {
+    
+    @Label("Status")
+    public String status;
+}
@@ -0,0 +1,17 @@
+package com.example.notification_service.repository;
+
+import com.example.notification_service.entity.ClusterNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ClusterNodeRepository extends JpaRepository<ClusterNode, String> {
+    
+    @Query("SELECT n.nodeId FROM ClusterNode n WHERE n.lastHeartbeat > :cutoff ORDER BY n.nodeId")
+    List<String> findLiveNodeIds(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,13 +1,17 @@
 package com.example.notification_service.repository;
 
 import com.example.notification_service.entity.Notification;
+import com.example.notification_service.entity.Notification.FailureReason;
 import com.example.notification_service.entity.Notification.NotificationStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,17 +22,85 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     
     List<Notification> findByStatus(NotificationStatus status);
     
+    List<Notification> findByTransactionId(String transactionId);
+    
+    List<Notification> findByIdInAndStatusIn(Collection<Long> ids, Collection<NotificationStatus> statuses);
+    
     List<Notification> findByStatusAndRetryCountLessThan(NotificationStatus status, Integer retryCount);
     
-    @Query("SELECT n FROM Notification n WHERE n.status = :status AND n.retryCount < n.maxRetry AND n.createdAt < :threshold")
-    List<Notification> findFailedNotificationsForRetry(@Param("status") NotificationStatus status, 
-                                                     @Param("threshold") LocalDateTime threshold);
+    // RETRYING rows past their backoff, PENDING rows whose in-memory dispatch was lost (restart, crash, dead node)
+    // and SENDING rows whose node died mid-send. Keyset-paged so the retry scan never loads a whole outage backlog at once
+    @Query("SELECT n FROM Notification n WHERE n.id > :afterId AND n.retryCount < n.maxRetry AND (" +
+           "(n.status = :retrying AND COALESCE(n.updatedAt, n.createdAt) < :retryThreshold) " +
+           "OR (n.status = :pending AND n.createdAt < :pendingThreshold) " +
+           "OR (n.status = :sending AND n.updatedAt < :sendingThreshold)) ORDER BY n.id")
+    List<Notification> findDueForRetry(@Param("retrying") NotificationStatus retrying,
+                                       @Param("retryThreshold") LocalDateTime retryThreshold,
+                                       @Param("pending") NotificationStatus pending,
+                                       @Param("pendingThreshold") LocalDateTime pendingThreshold,
+                                       @Param("sending") NotificationStatus sending,
+                                       @Param("sendingThreshold") LocalDateTime sendingThreshold,
+                                       @Param("afterId") Long afterId,
+                                       Pageable pageable);
+    
+    @Query("SELECT n FROM Notification n WHERE n.id > :afterId AND n.retryCount < n.maxRetry " +
+           "AND n.partitionId IN :partitions AND (" +
+           "(n.status = :retrying AND COALESCE(n.updatedAt, n.createdAt) < :retryThreshold) " +
+           "OR (n.status = :pending AND n.createdAt < :pendingThreshold) " +
+           "OR (n.status = :sending AND n.updatedAt < :sendingThreshold)) ORDER BY n.id")
+    List<Notification> findDueForRetryInPartitions(@Param("retrying") NotificationStatus retrying,
+                                                   @Param("retryThreshold") LocalDateTime retryThreshold,
+                                                   @Param("pending") NotificationStatus pending,
+                                                   @Param("pendingThreshold") LocalDateTime pendingThreshold,
+                                                   @Param("sending") NotificationStatus sending,
+                                                   @Param("sendingThreshold") LocalDateTime sendingThreshold,
+                                                   @Param("partitions") Collection<Integer> partitions,
+                                                   @Param("afterId") Long afterId,
+                                                   Pageable pageable);
+    
+    // Compare-and-set on the version column: exactly one caller holding the current version wins, everyone else gets 0.
+    // Bulk updates skip @PreUpdate and the persistence context, hence the explicit updatedAt and clearAutomatically
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Notification n SET n.status = :status, n.updatedAt = :updatedAt, n.version = n.version + 1 " +
+           "WHERE n.id = :id AND n.version = :version")
+    int updateStatusIfVersion(@Param("id") Long id,
+                              @Param("version") Long version,
+                              @Param("status") NotificationStatus status,
+                              @Param("updatedAt") LocalDateTime updatedAt);
     
     @Query("SELECT n FROM Notification n WHERE n.status = :status AND n.createdAt BETWEEN :start AND :end")
     List<Notification> findByStatusAndCreatedAtBetween(@Param("status") NotificationStatus status,
                                                       @Param("start") LocalDateTime start,
                                                       @Param("end") LocalDateTime end);
     
+    @Query("SELECT MIN(n.createdAt) FROM Notification n WHERE n.status IN :statuses")
+    Optional<LocalDateTime> findOldestCreatedAtByStatusIn(@Param("statuses") Collection<NotificationStatus> statuses);
+    
+    // Keyset-paged so a dead-letter replay can stream large result sets chunk by chunk. The from/to range is on
+    // deadLetteredAt, i.e. when the notification failed for good, which is what an outage replay selects by
+    @Query("SELECT n FROM Notification n WHERE n.status = :status AND n.id > :afterId " +
+           "AND (:type IS NULL OR n.notificationType = :type) " +
+           "AND (:reason IS NULL OR n.failureReason = :reason) " +
+           "AND (:from IS NULL OR n.deadLetteredAt >= :from) AND (:to IS NULL OR n.deadLetteredAt < :to) " +
+           "ORDER BY n.id")
+    List<Notification> findDeadLettersAfter(@Param("status") NotificationStatus status,
+                                            @Param("afterId") Long afterId,
+                                            @Param("type") String type,
+                                            @Param("reason") FailureReason reason,
+                                            @Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to,
+                                            Pageable pageable);
+    
+    @Query("SELECT COUNT(n) FROM Notification n WHERE n.status = :status " +
+           "AND (:type IS NULL OR n.notificationType = :type) " +
+           "AND (:reason IS NULL OR n.failureReason = :reason) " +
+           "AND (:from IS NULL OR n.deadLetteredAt >= :from) AND (:to IS NULL OR n.deadLetteredAt < :to)")
+    long countDeadLetters(@Param("status") NotificationStatus status,
+                          @Param("type") String type,
+                          @Param("reason") FailureReason reason,
+                          @Param("from") LocalDateTime from,
+                          @Param("to") LocalDateTime to);
+    
     @Query("SELECT COUNT(n) FROM Notification n WHERE n.status = :status AND n.createdAt BETWEEN :start AND :end")
     Long countByStatusAndCreatedAtBetween(@Param("status") NotificationStatus status,
                                          @Param("start") LocalDateTime start,
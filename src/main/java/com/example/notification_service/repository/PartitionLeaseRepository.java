@@ -0,0 +1,49 @@
+package com.example.notification_service.repository;
+
+import com.example.notification_service.entity.PartitionLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PartitionLeaseRepository extends JpaRepository<PartitionLease, Integer> {
+    
+    @Query("SELECT l.partitionId FROM PartitionLease l")
+    List<Integer> findAllPartitionIds();
+    
+    @Query("SELECT l.partitionId FROM PartitionLease l WHERE l.ownerNodeId = :nodeId ORDER BY l.partitionId")
+    List<Integer> findPartitionIdsOwnedBy(@Param("nodeId") String nodeId);
+    
+    @Query("SELECT l.partitionId FROM PartitionLease l " +
+           "WHERE l.ownerNodeId IS NULL OR l.leaseExpiresAt < :now ORDER BY l.partitionId")
+    List<Integer> findAvailablePartitionIds(@Param("now") LocalDateTime now);
+    
+    // Conditional update: only succeeds if the lease is free, expired, or already ours
+    @Modifying
+    @Query("UPDATE PartitionLease l SET l.ownerNodeId = :nodeId, l.leaseExpiresAt = :expiresAt " +
+           "WHERE l.partitionId = :partitionId " +
+           "AND (l.ownerNodeId IS NULL OR l.leaseExpiresAt < :now OR l.ownerNodeId = :nodeId)")
+    int tryAcquire(@Param("partitionId") Integer partitionId,
+                   @Param("nodeId") String nodeId,
+                   @Param("now") LocalDateTime now,
+                   @Param("expiresAt") LocalDateTime expiresAt);
+    
+    @Modifying
+    @Query("UPDATE PartitionLease l SET l.leaseExpiresAt = :expiresAt WHERE l.ownerNodeId = :nodeId")
+    int renewAll(@Param("nodeId") String nodeId, @Param("expiresAt") LocalDateTime expiresAt);
+    
+    @Modifying
+    @Query("UPDATE PartitionLease l SET l.ownerNodeId = NULL, l.leaseExpiresAt = NULL " +
+           "WHERE l.ownerNodeId = :nodeId AND l.partitionId IN :partitionIds")
+    int release(@Param("nodeId") String nodeId, @Param("partitionIds") Collection<Integer> partitionIds);
+    
+    @Modifying
+    @Query("UPDATE PartitionLease l SET l.ownerNodeId = NULL, l.leaseExpiresAt = NULL WHERE l.ownerNodeId = :nodeId")
+    int releaseAll(@Param("nodeId") String nodeId);
+}
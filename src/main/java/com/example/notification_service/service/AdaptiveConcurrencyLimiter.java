@@ -0,0 +1,276 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.entity.Notification.Channel;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AIMD limit on concurrent sends per delivery channel, applied by resizing the channel's bulkhead pool.
+ * Each window the limit is cut multiplicatively when the error rate or the send latency (failed sends
+ * included, so timeouts count) rises above the channel's own baseline, and raised by one when the
+ * window was saturated at the current limit. Idle channels keep their limit.
+ * Every delivery also needs a pooled DB connection for its load and outcome write, so the channels
+ * share the Hikari pool: the sum of their limits stays within maximumPoolSize, and none grows while
+ * threads are already waiting for a connection. A channel that needs more than the free budget takes
+ * it from a channel not using its limit, otherwise from the largest channel, so busy channels even out.
+ */
+@Service
+public class AdaptiveConcurrencyLimiter {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+    
+    // Weight of a new window when the latency baseline drifts upwards
+    private static final double BASELINE_DRIFT = 0.05;
+    
+    // Below this, latency differences are scheduling noise rather than provider load
+    private static final double MIN_BASELINE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    
+    // Weight of a new window in the error rate baseline (roughly the last ten windows)
+    private static final double ERROR_BASELINE_WEIGHT = 0.1;
+    
+    // A channel failing more often than this is broken, not noisy; the baseline never settles above it
+    private static final double MAX_ERROR_BASELINE = 0.5;
+    
+    private final DeliveryChannelRouter deliveryChannelRouter;
+    
+    private final Map<Channel, ChannelLimit> limits = new EnumMap<>(Channel.class);
+    
+    @Autowired
+    private DataSource dataSource;
+    
+    @Value("${notification.dispatch.limit.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${notification.dispatch.limit.min:1}")
+    private int minLimit;
+    
+    // Per channel; all channels together are further capped at the Hikari maximumPoolSize
+    @Value("${notification.dispatch.limit.max:20}")
+    private int maxLimit;
+    
+    @Value("${notification.dispatch.limit.min-samples:10}")
+    private int minSamples;
+    
+    // Errors a provider returns regardless of load (bad recipients, flaky transport) only raise the baseline;
+    // a window backs off when its error rate exceeds the baseline by this much and by two standard errors
+    @Value("${notification.dispatch.limit.error-rate-tolerance:0.1}")
+    private double errorRateTolerance;
+    
+    @Value("${notification.dispatch.limit.latency-tolerance:2.0}")
+    private double latencyTolerance;
+    
+    @Value("${notification.dispatch.limit.backoff-ratio:0.75}")
+    private double backoffRatio;
+    
+    public AdaptiveConcurrencyLimiter(DeliveryChannelRouter deliveryChannelRouter, MeterRegistry meterRegistry) {
+        this.deliveryChannelRouter = deliveryChannelRouter;
+        for (Channel channel : Channel.values()) {
+            // The configured channel concurrency is the starting limit
+            ChannelLimit limit = new ChannelLimit(deliveryChannelRouter.executorFor(channel).getMaxPoolSize());
+            limits.put(channel, limit);
+            Gauge.builder("notification.dispatch.concurrency.limit", limit, l -> l.limit)
+                    .description("Current adaptive limit on concurrent sends")
+                    .tag("channel", channel.name())
+                    .register(meterRegistry);
+        }
+    }
+    
+    // Called by the delivery thread around each send; returns the start time to pass to onComplete
+    public long onStart(Channel channel) {
+        ChannelLimit limit = limitOf(channel);
+        limit.peakInFlight.accumulateAndGet(limit.inFlight.incrementAndGet(), Math::max);
+        return System.nanoTime();
+    }
+    
+    public void onComplete(Channel channel, long startNanos, boolean success) {
+        ChannelLimit limit = limitOf(channel);
+        limit.inFlight.decrementAndGet();
+        limit.latencyNanos.add(System.nanoTime() - startNanos);
+        if (success) {
+            limit.successes.increment();
+        } else {
+            limit.failures.increment();
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${notification.dispatch.limit.window-ms:1000}")
+    public void adjust() {
+        if (!enabled) {
+            return;
+        }
+        HikariPoolMXBean pool = hikariPool();
+        boolean poolContended = pool != null && pool.getThreadsAwaitingConnection() > 0;
+        Map<Channel, Integer> targets = new EnumMap<>(Channel.class);
+        Set<Channel> underused = EnumSet.noneOf(Channel.class);
+        for (Map.Entry<Channel, ChannelLimit> entry : limits.entrySet()) {
+            targets.put(entry.getKey(), target(entry.getKey(), entry.getValue(), poolContended, underused));
+        }
+        if (pool != null) {
+            shareBudget(targets, underused, hikariMaximumPoolSize());
+        }
+        for (Map.Entry<Channel, Integer> entry : targets.entrySet()) {
+            apply(entry.getKey(), limits.get(entry.getKey()), entry.getValue());
+        }
+    }
+    
+    public int currentLimit(Channel channel) {
+        return limitOf(channel).limit;
+    }
+    
+    // The limit this window's measurements ask for, before the channels' shared DB pool budget is applied
+    private int target(Channel channel, ChannelLimit limit, boolean poolContended, Set<Channel> underused) {
+        long successes = limit.successes.sumThenReset();
+        long failures = limit.failures.sumThenReset();
+        long latencyNanos = limit.latencyNanos.sumThenReset();
+        int peakInFlight = limit.peakInFlight.getAndSet(limit.inFlight.get());
+        long samples = successes + failures;
+        boolean saturated = peakInFlight >= limit.limit || deliveryChannelRouter.queueDepth(channel) > 0;
+        if (!saturated) {
+            underused.add(channel);
+        }
+        if (samples < minSamples) {
+            limit.reason = "idle";
+            return limit.limit;
+        }
+        
+        double errorRate = (double) failures / samples;
+        boolean erroring = false;
+        if (limit.errorBaseline >= 0) {
+            double baseline = limit.errorBaseline;
+            // Binomial standard error keeps small windows from backing off on sampling noise alone
+            double noise = 2 * Math.sqrt(Math.max(baseline * (1 - baseline), 1.0 / samples) / samples);
+            erroring = errorRate > baseline + Math.max(errorRateTolerance, noise);
+            // Only windows that look normal move the baseline, so an outage never becomes the new normal
+            if (!erroring) {
+                limit.errorBaseline = Math.min(baseline + (errorRate - baseline) * ERROR_BASELINE_WEIGHT, MAX_ERROR_BASELINE);
+            }
+        } else {
+            limit.errorBaseline = Math.min(errorRate, MAX_ERROR_BASELINE);
+        }
+        
+        double latency = (double) latencyNanos / samples;
+        boolean slow = limit.baselineNanos > 0 && latency > Math.max(limit.baselineNanos, MIN_BASELINE_NANOS) * latencyTolerance;
+        limit.baselineNanos = limit.baselineNanos == 0 || latency < limit.baselineNanos
+                ? latency
+                : limit.baselineNanos + (latency - limit.baselineNanos) * BASELINE_DRIFT;
+        
+        limit.reason = String.format("error rate %.2f, slow %s", errorRate, slow);
+        if (erroring || slow) {
+            return Math.max(minLimit, (int) (limit.limit * backoffRatio));
+        }
+        // Only probe upwards when the current limit was actually the bottleneck
+        if (limit.limit < maxLimit && !poolContended && saturated) {
+            return limit.limit + 1;
+        }
+        return Math.min(limit.limit, Math.max(minLimit, maxLimit));
+    }
+    
+    // Trims targets until their sum fits the pool. Channels that did not use their limit give up capacity first;
+    // otherwise the largest channel does, so a smaller busy channel grows at the biggest one's expense, and the
+    // biggest one growing with nothing to spare just undoes its own growth
+    private void shareBudget(Map<Channel, Integer> targets, Set<Channel> underused, int budget) {
+        int total = targets.values().stream().mapToInt(Integer::intValue).sum();
+        while (total > budget) {
+            Channel donor = largest(targets, underused);
+            if (donor == null) {
+                donor = largest(targets, targets.keySet());
+            }
+            if (donor == null) {
+                // Every channel is at the minimum already
+                return;
+            }
+            targets.put(donor, targets.get(donor) - 1);
+            limits.get(donor).reason = "sharing the DB pool";
+            total--;
+        }
+    }
+    
+    private Channel largest(Map<Channel, Integer> targets, Set<Channel> candidates) {
+        Channel largest = null;
+        for (Channel channel : candidates) {
+            int target = targets.get(channel);
+            if (target > minLimit && (largest == null || target > targets.get(largest))) {
+                largest = channel;
+            }
+        }
+        return largest;
+    }
+    
+    private void apply(Channel channel, ChannelLimit limit, int newLimit) {
+        if (newLimit != limit.limit) {
+            logger.info("{} concurrency limit {} -> {} ({})", channel, limit.limit, newLimit, limit.reason);
+            resize(deliveryChannelRouter.executorFor(channel), newLimit);
+            limit.limit = newLimit;
+        }
+    }
+    
+    // ThreadPoolExecutor rejects core > max, so the order depends on the direction
+    private static void resize(ThreadPoolTaskExecutor executor, int newLimit) {
+        if (newLimit > executor.getMaxPoolSize()) {
+            executor.setMaxPoolSize(newLimit);
+            executor.setCorePoolSize(newLimit);
+        } else {
+            executor.setCorePoolSize(newLimit);
+            executor.setMaxPoolSize(newLimit);
+        }
+    }
+    
+    private HikariPoolMXBean hikariPool() {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class)
+                    ? dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean()
+                    : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+    
+    private int hikariMaximumPoolSize() {
+        try {
+            return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+        } catch (SQLException e) {
+            return maxLimit;
+        }
+    }
+    
+    private ChannelLimit limitOf(Channel channel) {
+        return limits.get(channel != null ? channel : Channel.EMAIL);
+    }
+    
+    private static class ChannelLimit {
+        private volatile int limit;
+        private volatile double baselineNanos;
+        // Negative until the first full window
+        private volatile double errorBaseline = -1;
+        // What drove the last target, for the log line
+        private volatile String reason;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger peakInFlight = new AtomicInteger();
+        private final LongAdder successes = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder latencyNanos = new LongAdder();
+        
+        ChannelLimit(int initialLimit) {
+            this.limit = initialLimit;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.entity.Notification.Channel;
+import com.example.notification_service.entity.Notification.NotificationStatus;
+import com.example.notification_service.exception.LoadSheddingException;
+import com.example.notification_service.repository.NotificationRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Decides whether a new notification may be admitted, based on its channel's dispatch queue depth,
+ * age of the oldest not-yet-attempted notification and database pool saturation.
+ * Normal traffic is shed once any signal crosses its soft threshold; payment
+ * notifications are only shed once a signal crosses its hard threshold.
+ */
+@Service
+public class AdmissionControlService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControlService.class);
+    
+    public enum Priority {
+        NORMAL,
+        HIGH
+    }
+    
+    public enum PressureLevel {
+        NONE,
+        ELEVATED,
+        CRITICAL
+    }
+    
+    @Autowired
+    private NotificationRepository notificationRepository;
+    
+    @Autowired
+    private DeliveryChannelRouter deliveryChannelRouter;
+    
+    @Autowired
+    private DataSource dataSource;
+    
+    @Value("${notification.admission.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${notification.admission.queue-depth.soft:50}")
+    private int queueDepthSoft;
+    
+    @Value("${notification.admission.queue-depth.hard:90}")
+    private int queueDepthHard;
+    
+    @Value("${notification.admission.backlog-age-ms.soft:60000}")
+    private long backlogAgeSoftMs;
+    
+    @Value("${notification.admission.backlog-age-ms.hard:300000}")
+    private long backlogAgeHardMs;
+    
+    @Value("${notification.admission.db-pool-utilization.soft:0.8}")
+    private double dbPoolSoft;
+    
+    @Value("${notification.admission.db-pool-utilization.hard:0.95}")
+    private double dbPoolHard;
+    
+    // How long the pool must stay saturated before it counts as CRITICAL; shorter bursts are only ELEVATED
+    @Value("${notification.admission.db-pool-saturated-ms:2000}")
+    private long dbPoolSaturatedMs;
+    
+    @Value("${notification.admission.retry-after-seconds:5}")
+    private long retryAfterSeconds;
+    
+    private final Map<Priority, Counter> shedCounters = new EnumMap<>(Priority.class);
+    
+    // Backlog age needs a query, so it is sampled rather than computed per request
+    private volatile long backlogAgeMs;
+    
+    // Level is per channel (queue depth is), so transitions are tracked and logged per channel too
+    private final Map<Channel, AtomicReference<PressureLevel>> lastLevels = new EnumMap<>(Channel.class);
+    
+    private volatile boolean dbPoolSaturated;
+    
+    private volatile long dbPoolSaturatedSinceNanos;
+    
+    public AdmissionControlService(MeterRegistry meterRegistry) {
+        for (Priority priority : Priority.values()) {
+            shedCounters.put(priority, Counter.builder("notification.admission.shed")
+                    .description("Notification requests rejected by admission control")
+                    .tag("priority", priority.name())
+                    .register(meterRegistry));
+        }
+        for (Channel channel : Channel.values()) {
+            AtomicReference<PressureLevel> lastLevel = new AtomicReference<>(PressureLevel.NONE);
+            lastLevels.put(channel, lastLevel);
+            Gauge.builder("notification.admission.pressure", lastLevel, l -> l.get().ordinal())
+                    .description("Current admission pressure level (0=none, 1=elevated, 2=critical)")
+                    .tag("channel", channel.name())
+                    .register(meterRegistry);
+        }
+        Gauge.builder("notification.admission.backlog.age", this, s -> s.backlogAgeMs)
+                .description("Age in milliseconds of the oldest PENDING notification")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+    
+    public static Priority priorityOf(String notificationType) {
+        return notificationType != null && notificationType.startsWith("PAYMENT_") ? Priority.HIGH : Priority.NORMAL;
+    }
+    
+    public void admit(Priority priority, Channel channel) {
+        if (!enabled) {
+            return;
+        }
+        
+        PressureLevel level = currentLevel(channel);
+        boolean shed = level == PressureLevel.CRITICAL
+                || (level == PressureLevel.ELEVATED && priority == Priority.NORMAL);
+        if (shed) {
+            shedCounters.get(priority).increment();
+            long retryAfter = level == PressureLevel.CRITICAL ? retryAfterSeconds * 2 : retryAfterSeconds;
+            throw new LoadSheddingException(channel + " dispatch is overloaded (" + level + "), " + priority
+                    + " priority request rejected", retryAfter);
+        }
+    }
+    
+    // Queue depth is per channel, so a backed-up channel only sheds its own traffic
+    public PressureLevel currentLevel(Channel channel) {
+        int queueDepth = deliveryChannelRouter.queueDepth(channel);
+        double dbPoolUtilization = dbPoolUtilization();
+        PressureLevel level = max(
+                levelOf(queueDepth, queueDepthSoft, queueDepthHard),
+                levelOf(backlogAgeMs, backlogAgeSoftMs, backlogAgeHardMs),
+                dbPoolLevel(dbPoolUtilization));
+        PressureLevel previous = lastLevels.get(channel).getAndSet(level);
+        if (level != previous) {
+            logger.info("{} admission pressure changed from {} to {} (queue depth {}, backlog age {} ms, DB pool {})",
+                    channel, previous, level, queueDepth, backlogAgeMs, String.format("%.2f", dbPoolUtilization));
+        }
+        return level;
+    }
+    
+    @Scheduled(fixedDelayString = "${notification.admission.sample-interval-ms:1000}")
+    public void sampleBacklogAge() {
+        backlogAgeMs = notificationRepository
+                .findOldestCreatedAtByStatusIn(EnumSet.of(NotificationStatus.PENDING))
+                .map(oldest -> Math.max(0, Duration.between(oldest, LocalDateTime.now()).toMillis()))
+                .orElse(0L);
+    }
+    
+    private double dbPoolUtilization() {
+        try {
+            if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+                return 0;
+            }
+            HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            if (pool == null) {
+                return 0;
+            }
+            // Threads already waiting for a connection mean every connection is in use
+            if (pool.getThreadsAwaitingConnection() > 0) {
+                return 1;
+            }
+            return (double) pool.getActiveConnections() / hikari.getMaximumPoolSize();
+        } catch (SQLException e) {
+            return 0;
+        }
+    }
+    
+    // A saturated pool (threads waiting, or utilization at the hard threshold) is routine for a moment during a burst,
+    // so it only becomes CRITICAL, and sheds payments, once it has lasted dbPoolSaturatedMs
+    private PressureLevel dbPoolLevel(double utilization) {
+        if (utilization < dbPoolHard) {
+            dbPoolSaturated = false;
+            return utilization >= dbPoolSoft ? PressureLevel.ELEVATED : PressureLevel.NONE;
+        }
+        long now = System.nanoTime();
+        if (!dbPoolSaturated) {
+            dbPoolSaturatedSinceNanos = now;
+            dbPoolSaturated = true;
+        }
+        return now - dbPoolSaturatedSinceNanos >= TimeUnit.MILLISECONDS.toNanos(dbPoolSaturatedMs)
+                ? PressureLevel.CRITICAL
+                : PressureLevel.ELEVATED;
+    }
+    
+    private static PressureLevel levelOf(double value, double soft, double hard) {
+        if (value >= hard) {
+            return PressureLevel.CRITICAL;
+        }
+        return value >= soft ? PressureLevel.ELEVATED : PressureLevel.NONE;
+    }
+    
+    private static PressureLevel max(PressureLevel... levels) {
+        PressureLevel result = PressureLevel.NONE;
+        for (PressureLevel level : levels) {
+            if (level.compareTo(result) > 0) {
+                result = level;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.dto.DeadLetterReplayRequest;
+import com.example.notification_service.dto.DeadLetterReplayResponse;
+import com.example.notification_service.entity.Notification;
+import com.example.notification_service.entity.Notification.Channel;
+import com.example.notification_service.entity.Notification.NotificationStatus;
+import com.example.notification_service.exception.LoadSheddingException;
+import com.example.notification_service.repository.NotificationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dead-letter store for notifications that reached FAILED after maxRetry attempts.
+ * Replays stream matching rows in keyset-paged chunks and feed them to the delivery executors at a
+ * bounded rate, so a large replay never floods the executor or the DB. Each row stays FAILED until
+ * the moment it is handed off, so the retry scan never sees a row the replay still intends to send.
+ */
+@Service
+public class DeadLetterService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DeadLetterService.class);
+    
+    private static final int MAX_TRACKED_JOBS = 100;
+    
+    public enum ReplayStatus {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+    
+    @Autowired
+    private NotificationRepository notificationRepository;
+    
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+    
+    @Autowired
+    private DeliveryChannelRouter deliveryChannelRouter;
+    
+    @Autowired
+    private NotificationResponseCache notificationResponseCache;
+    
+    @Autowired
+    @Qualifier("deadLetterReplayExecutor")
+    private ThreadPoolTaskExecutor deadLetterReplayExecutor;
+    
+    private final TransactionTemplate transactionTemplate;
+    
+    @Value("${notification.dead-letter.replay.chunk-size:200}")
+    private int defaultChunkSize;
+    
+    @Value("${notification.dead-letter.replay.max-per-second:50}")
+    private int maxPerSecond;
+    
+    @Value("${notification.dead-letter.replay.max-queue-depth:25}")
+    private int maxQueueDepth;
+    
+    private final Map<String, ReplayJob> jobs = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ReplayJob> eldest) {
+            return size() > MAX_TRACKED_JOBS;
+        }
+    });
+    
+    public DeadLetterService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    public DeadLetterReplayResponse startReplay(DeadLetterReplayRequest request) {
+        if (request.getFrom() != null && request.getTo() != null && !request.getFrom().isBefore(request.getTo())) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        
+        long matched = notificationRepository.countDeadLetters(NotificationStatus.FAILED, request.getNotificationType(),
+                request.getFailureReason(), request.getFrom(), request.getTo());
+        ReplayJob job = new ReplayJob(UUID.randomUUID().toString(), matched);
+        jobs.put(job.jobId, job);
+        
+        try {
+            deadLetterReplayExecutor.execute(() -> runReplay(job, request));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.jobId);
+            throw new LoadSheddingException("Too many dead-letter replays already queued", 30);
+        }
+        
+        logger.info("Queued dead-letter replay {} matching {} notifications", job.jobId, matched);
+        return job.toResponse();
+    }
+    
+    public Optional<DeadLetterReplayResponse> getReplay(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(ReplayJob::toResponse);
+    }
+    
+    private void runReplay(ReplayJob job, DeadLetterReplayRequest request) {
+        job.status = ReplayStatus.RUNNING;
+        int chunkSize = request.getChunkSize() != null ? request.getChunkSize() : defaultChunkSize;
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, maxPerSecond);
+        long nextSlot = System.nanoTime();
+        long afterId = 0;
+        
+        try {
+            while (true) {
+                List<Notification> chunk = notificationRepository.findDeadLettersAfter(NotificationStatus.FAILED, afterId,
+                        request.getNotificationType(), request.getFailureReason(), request.getFrom(), request.getTo(),
+                        PageRequest.of(0, chunkSize));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                afterId = chunk.get(chunk.size() - 1).getId();
+                
+                for (Notification candidate : chunk) {
+                    nextSlot = throttle(nextSlot, intervalNanos, candidate.getChannel());
+                    Notification claimed;
+                    try {
+                        claimed = transactionTemplate.execute(status -> claim(candidate.getId()));
+                    } catch (OptimisticLockingFailureException e) {
+                        // Claimed concurrently, e.g. by an overlapping replay job
+                        continue;
+                    }
+                    if (claimed == null) {
+                        continue;
+                    }
+                    notificationResponseCache.invalidate(claimed.getId(), claimed.getUpdatedAt());
+                    notificationDispatcher.dispatch(claimed, claimed.getVersion());
+                    job.requeued++;
+                }
+                job.chunksCompleted++;
+                logger.info("Dead-letter replay {}: requeued {}/{}", job.jobId, job.requeued, job.matched);
+            }
+            job.status = ReplayStatus.COMPLETED;
+        } catch (InterruptedException e) {
+            // Rows not yet handed off are still FAILED and can be replayed again
+            Thread.currentThread().interrupt();
+            job.status = ReplayStatus.CANCELLED;
+            logger.warn("Dead-letter replay {} cancelled after requeueing {}", job.jobId, job.requeued);
+        } catch (Exception e) {
+            job.status = ReplayStatus.FAILED;
+            job.errorMessage = e.getMessage();
+            logger.error("Dead-letter replay {} failed after requeueing {}", job.jobId, job.requeued, e);
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+        }
+    }
+    
+    // Resets a single dead letter right before dispatch; skips rows that left FAILED since the chunk was read
+    private Notification claim(Long id) {
+        Notification notification = notificationRepository.findById(id).orElse(null);
+        if (notification == null || notification.getStatus() != NotificationStatus.FAILED) {
+            return null;
+        }
+        notification.setStatus(NotificationStatus.RETRYING);
+        notification.setRetryCount(0);
+        notification.setFailureReason(null);
+        notification.setDeadLetteredAt(null);
+        return notificationRepository.saveAndFlush(notification);
+    }
+    
+    // Waits for both the rate limit slot and room in the channel's dispatch queue
+    private long throttle(long nextSlot, long intervalNanos, Channel channel) throws InterruptedException {
+        long wait = nextSlot - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        while (deliveryChannelRouter.queueDepth(channel) >= maxQueueDepth) {
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        return Math.max(nextSlot, System.nanoTime()) + intervalNanos;
+    }
+    
+    private static class ReplayJob {
+        private final String jobId;
+        private final long matched;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private volatile ReplayStatus status = ReplayStatus.QUEUED;
+        private volatile long requeued;
+        private volatile int chunksCompleted;
+        private volatile LocalDateTime finishedAt;
+        private volatile String errorMessage;
+        
+        ReplayJob(String jobId, long matched) {
+            this.jobId = jobId;
+            this.matched = matched;
+        }
+        
+        DeadLetterReplayResponse toResponse() {
+            DeadLetterReplayResponse response = new DeadLetterReplayResponse();
+            response.setJobId(jobId);
+            response.setStatus(status.name());
+            response.setMatched(matched);
+            response.setRequeued(requeued);
+            response.setChunksCompleted(chunksCompleted);
+            response.setStartedAt(startedAt);
+            response.setFinishedAt(finishedAt);
+            response.setErrorMessage(errorMessage);
+            return response;
+        }
+    }
+}
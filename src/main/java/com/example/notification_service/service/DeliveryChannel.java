@@ -0,0 +1,19 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.entity.Notification;
+import com.example.notification_service.entity.Notification.Channel;
+
+/**
+ * A transport that can deliver a notification. Each channel runs on its own bulkhead executor
+ * (see AsyncConfig), so a slow transport only backs up its own queue.
+ */
+public interface DeliveryChannel {
+    
+    Channel getChannel();
+    
+    // Throws IllegalArgumentException when the recipient is not addressable on this channel
+    void validateRecipient(String recipient);
+    
+    // Throws a RuntimeException describing the failure; the message is recorded as errorMessage
+    void send(Notification notification);
+}
@@ -0,0 +1,86 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.entity.Notification.Channel;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves the delivery channel for a notification and the bulkhead executor it runs on.
+ * An explicit channel on the request wins; otherwise notificationType is routed through
+ * notification.channel.sms-types / push-types, defaulting to EMAIL. PAYMENT_* types cannot be
+ * routed away from EMAIL: /payment-callback only carries the customer's email address.
+ */
+@Service
+public class DeliveryChannelRouter {
+    
+    private final Map<Channel, DeliveryChannel> channels = new EnumMap<>(Channel.class);
+    
+    private final Map<Channel, ThreadPoolTaskExecutor> executors = new EnumMap<>(Channel.class);
+    
+    private final Set<String> smsTypes;
+    
+    private final Set<String> pushTypes;
+    
+    public DeliveryChannelRouter(List<DeliveryChannel> deliveryChannels,
+                                 @Qualifier("emailDeliveryExecutor") ThreadPoolTaskExecutor emailExecutor,
+                                 @Qualifier("smsDeliveryExecutor") ThreadPoolTaskExecutor smsExecutor,
+                                 @Qualifier("pushDeliveryExecutor") ThreadPoolTaskExecutor pushExecutor,
+                                 @Value("${notification.channel.sms-types:}") Set<String> smsTypes,
+                                 @Value("${notification.channel.push-types:}") Set<String> pushTypes) {
+        // Fail at startup rather than answer every payment callback with a 400 from validateRecipient
+        for (String type : union(smsTypes, pushTypes)) {
+            if (type.startsWith("PAYMENT_")) {
+                throw new IllegalStateException("notificationType " + type + " cannot be routed to SMS or push: "
+                        + "payment callbacks only carry an email address");
+            }
+        }
+        this.smsTypes = smsTypes;
+        this.pushTypes = pushTypes;
+        for (DeliveryChannel deliveryChannel : deliveryChannels) {
+            channels.put(deliveryChannel.getChannel(), deliveryChannel);
+        }
+        executors.put(Channel.EMAIL, emailExecutor);
+        executors.put(Channel.SMS, smsExecutor);
+        executors.put(Channel.PUSH, pushExecutor);
+    }
+    
+    public Channel resolve(Channel requested, String notificationType) {
+        if (requested != null) {
+            return requested;
+        }
+        if (smsTypes.contains(notificationType)) {
+            return Channel.SMS;
+        }
+        if (pushTypes.contains(notificationType)) {
+            return Channel.PUSH;
+        }
+        return Channel.EMAIL;
+    }
+    
+    // Rows created before channels existed have no channel and were always email
+    public DeliveryChannel channelFor(Channel channel) {
+        return channels.get(channel != null ? channel : Channel.EMAIL);
+    }
+    
+    public ThreadPoolTaskExecutor executorFor(Channel channel) {
+        return executors.get(channel != null ? channel : Channel.EMAIL);
+    }
+    
+    public int queueDepth(Channel channel) {
+        return executorFor(channel).getThreadPoolExecutor().getQueue().size();
+    }
+    
+    private static Set<String> union(Set<String> first, Set<String> second) {
+        Set<String> union = new HashSet<>(first);
+        union.addAll(second);
+        return union;
+    }
+}
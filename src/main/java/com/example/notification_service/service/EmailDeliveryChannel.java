@@ -0,0 +1,34 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.entity.Notification;
+import com.example.notification_service.entity.Notification.Channel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Pattern;
+
+@Component
+public class EmailDeliveryChannel implements DeliveryChannel {
+    
+    private static final Pattern EMAIL = Pattern.compile("^[^@\\s]+@[^@\\s]+$");
+    
+    @Autowired
+    private EmailService emailService;
+    
+    @Override
+    public Channel getChannel() {
+        return Channel.EMAIL;
+    }
+    
+    @Override
+    public void validateRecipient(String recipient) {
+        if (recipient == null || !EMAIL.matcher(recipient).matches()) {
+            throw new IllegalArgumentException("Invalid email format");
+        }
+    }
+    
+    @Override
+    public void send(Notification notification) {
+        emailService.sendEmail(notification.getRecipient(), notification.getSubject(), notification.getMessage());
+    }
+}
@@ -12,6 +12,7 @@ public class EmailService {
     private static final Logger logger = LoggerFactory.getLogger(EmailService.class);
     private final Random random = new Random();
     
+    // Failures are thrown (not swallowed) so the cause ends up in Notification.errorMessage
     public boolean sendEmail(String to, String subject, String message) {
         logger.info("Attempting to send email to: {} with subject: {}", to, subject);
         
@@ -36,10 +37,10 @@ public class EmailService {
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             logger.error("Email sending interrupted for: {}", to, e);
-            return false;
-        } catch (Exception e) {
+            throw new RuntimeException("Email sending interrupted", e);
+        } catch (RuntimeException e) {
             logger.error("Failed to send email to: {}", to, e);
-            return false;
+            throw e;
         }
     }
 }
@@ -0,0 +1,207 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.entity.Notification;
+import com.example.notification_service.entity.Notification.FailureReason;
+import com.example.notification_service.entity.Notification.NotificationStatus;
+import com.example.notification_service.event.NotificationStatusChangedEvent;
+import com.example.notification_service.jfr.QueueWaitEvent;
+import com.example.notification_service.jfr.SendAttemptEvent;
+import com.example.notification_service.jfr.StatusPersistEvent;
+import com.example.notification_service.repository.NotificationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Hands notifications to their channel's bulkhead executor and runs each delivery attempt.
+ * Transaction boundaries are explicit (TransactionTemplate) rather than proxy-based, so
+ * deliveries started from NotificationService need no self-injection. A delivery claims the row
+ * and records the outcome in two short transactions; no connection is held during the send.
+ * Every task carries the row version it was dispatched for, and the claim only succeeds while the
+ * row is still at that version, so a delayed task and its retry-scan replacement never both send.
+ */
+@Service
+public class NotificationDispatcher {
+    
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+    
+    @Autowired
+    private NotificationRepository notificationRepository;
+    
+    @Autowired
+    private DeliveryChannelRouter deliveryChannelRouter;
+    
+    @Autowired
+    private NotificationResponseCache notificationResponseCache;
+    
+    @Autowired
+    private AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter;
+    
+    // Status changes go out as NotificationStatusChangedEvent; the cache and SSE subscribers listen after commit
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    private final TransactionTemplate transactionTemplate;
+    
+    private final TransactionTemplate requiresNewTemplate;
+    
+    public NotificationDispatcher(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.requiresNewTemplate = new TransactionTemplate(transactionManager);
+        this.requiresNewTemplate.setPropagationBehavior(TransactionTemplate.PROPAGATION_REQUIRES_NEW);
+    }
+    
+    // Hand off to the executor only once the row is committed, otherwise the async save can race the insert
+    public void dispatchAfterCommit(Notification notification, long version) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            dispatch(notification, version);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dispatch(notification, version);
+            }
+        });
+    }
+    
+    // Hands the notification to its channel's bulkhead; a full bulkhead defers it to the retry scan
+    public void dispatch(Notification notification, long version) {
+        Long id = notification.getId();
+        QueueWaitEvent queueWait = new QueueWaitEvent();
+        queueWait.begin();
+        queueWait.notificationId = id;
+        queueWait.notificationType = notification.getNotificationType();
+        queueWait.channel = String.valueOf(notification.getChannel());
+        queueWait.queueDepth = deliveryChannelRouter.queueDepth(notification.getChannel());
+        try {
+            deliveryChannelRouter.executorFor(notification.getChannel()).execute(() -> {
+                queueWait.commit();
+                deliver(id, version);
+            });
+        } catch (TaskRejectedException e) {
+            logger.warn("{} delivery queue is full, deferring notification ID: {} to retry", notification.getChannel(), id);
+            defer(id);
+        }
+    }
+    
+    // Only the load and the status update hold a DB connection; the transport call runs outside any transaction
+    public void deliver(Long id, long version) {
+        logger.info("Processing notification ID: {}", id);
+        
+        // The message body is lazy, so touch it while the session is still open
+        Notification notification = transactionTemplate.execute(status -> {
+            if (notificationRepository.updateStatusIfVersion(id, version, NotificationStatus.SENDING, Notification.now()) == 0) {
+                return null;
+            }
+            Notification claimed = notificationRepository.findById(id).orElseThrow();
+            claimed.getMessage();
+            eventPublisher.publishEvent(new NotificationStatusChangedEvent(NotificationService.convertToResponse(claimed, true)));
+            return claimed;
+        });
+        // The row moved on since this task was queued: re-dispatched by the retry scan, replayed, deleted or already sent
+        if (notification == null) {
+            logger.info("Notification ID: {} is no longer at version {}, skipping", id, version);
+            return;
+        }
+        
+        SendAttemptEvent sendAttempt = new SendAttemptEvent();
+        sendAttempt.notificationId = id;
+        sendAttempt.notificationType = notification.getNotificationType();
+        sendAttempt.channel = String.valueOf(notification.getChannel());
+        sendAttempt.attempt = notification.getRetryCount() + 1;
+        sendAttempt.begin();
+        long startNanos = adaptiveConcurrencyLimiter.onStart(notification.getChannel());
+        String errorMessage = null;
+        try {
+            deliveryChannelRouter.channelFor(notification.getChannel()).send(notification);
+            adaptiveConcurrencyLimiter.onComplete(notification.getChannel(), startNanos, true);
+            sendAttempt.success = true;
+            logger.info("Notification sent successfully for ID: {}", id);
+        } catch (Exception e) {
+            adaptiveConcurrencyLimiter.onComplete(notification.getChannel(), startNanos, false);
+            errorMessage = e.getMessage();
+            sendAttempt.errorMessage = errorMessage;
+            logger.error("Failed to send notification ID: {}", id, e);
+        }
+        sendAttempt.commit();
+        
+        String failure = errorMessage;
+        long claimedVersion = notification.getVersion();
+        transactionTemplate.executeWithoutResult(status -> recordOutcome(id, claimedVersion, sendAttempt.success, failure));
+    }
+    
+    private void recordOutcome(Long id, long claimedVersion, boolean success, String errorMessage) {
+        Optional<Notification> current = notificationRepository.findById(id);
+        if (current.isEmpty()) {
+            logger.warn("Notification ID: {} was removed during delivery", id);
+            return;
+        }
+        Notification notification = current.get();
+        // A send outliving notification.retry.stale-sending-ms is re-dispatched by the retry scan. A late success
+        // still wins (the version bump stops the new task); a late failure is left to the new attempt
+        if (!success && notification.getVersion() != claimedVersion) {
+            logger.warn("Notification ID: {} was recovered during a failed send, leaving it to the new attempt", id);
+            return;
+        }
+        if (success) {
+            notification.setStatus(NotificationStatus.SENT);
+            notification.setSentAt(LocalDateTime.now());
+        } else {
+            handleNotificationFailure(notification, errorMessage);
+        }
+        
+        // Flush first so the published response carries the same updatedAt as the row
+        StatusPersistEvent statusPersist = new StatusPersistEvent();
+        statusPersist.begin();
+        notificationRepository.saveAndFlush(notification);
+        statusPersist.notificationId = id;
+        statusPersist.notificationType = notification.getNotificationType();
+        statusPersist.channel = String.valueOf(notification.getChannel());
+        statusPersist.status = notification.getStatus().name();
+        statusPersist.commit();
+        eventPublisher.publishEvent(new NotificationStatusChangedEvent(NotificationService.convertToResponse(notification, true)));
+    }
+    
+    // Runs in its own transaction: the caller may be inside the creating transaction's afterCommit callback
+    public void defer(Long id) {
+        requiresNewTemplate.executeWithoutResult(status -> notificationRepository.findById(id).ifPresent(notification -> {
+            notification.setStatus(NotificationStatus.RETRYING);
+            notificationRepository.saveAndFlush(notification);
+            LocalDateTime version = notification.getUpdatedAt();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    notificationResponseCache.invalidate(id, version);
+                }
+            });
+        }));
+    }
+    
+    private void handleNotificationFailure(Notification notification, String errorMessage) {
+        notification.setRetryCount(notification.getRetryCount() + 1);
+        notification.setErrorMessage(errorMessage);
+        
+        if (notification.getRetryCount() >= notification.getMaxRetry()) {
+            notification.setStatus(NotificationStatus.FAILED);
+            notification.setFailureReason(FailureReason.classify(errorMessage));
+            notification.setDeadLetteredAt(LocalDateTime.now());
+            logger.error("Notification failed permanently after {} retries. ID: {}",
+                    notification.getMaxRetry(), notification.getId());
+        } else {
+            notification.setStatus(NotificationStatus.RETRYING);
+            logger.info("Notification will be retried. Attempt {}/{}. ID: {}",
+                    notification.getRetryCount(), notification.getMaxRetry(), notification.getId());
+        }
+    }
+}
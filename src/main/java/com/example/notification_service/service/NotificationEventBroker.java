@@ -0,0 +1,263 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.dto.NotificationResponse;
+import com.example.notification_service.entity.Notification.NotificationStatus;
+import com.example.notification_service.event.NotificationStatusChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Fans committed status changes out to Server-Sent Events subscribers, keyed by notification id
+ * and by transaction id. Emitters are async servlet responses, so idle subscriptions hold no
+ * threads; all writes happen on sseEventExecutor so a slow client never blocks dispatch.
+ * Each subscriber has its own bounded queue drained by at most one fan-out task at a time, so a
+ * stalled client only delays its own events: it holds one fan-out thread until the connector's
+ * write timeout (server.tomcat.connection-timeout) fails the write, and is dropped if its queue fills.
+ * Subscribers are registered before the snapshot is loaded, so a change committed in between
+ * is never lost; it may still arrive before the older snapshot, so clients should order by updatedAt.
+ * Events are in-process only: in cluster mode a per-notification stream learns about a SENT/FAILED
+ * committed by another node from the heartbeat, which re-checks open streams against the database.
+ */
+@Service
+public class NotificationEventBroker {
+    
+    private static final Logger logger = LoggerFactory.getLogger(NotificationEventBroker.class);
+    
+    private static final String EVENT_NAME = "status";
+    
+    private final Map<Long, Set<Subscriber>> notificationSubscribers = new ConcurrentHashMap<>();
+    
+    private final Map<String, Set<Subscriber>> transactionSubscribers = new ConcurrentHashMap<>();
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private NotificationService notificationService;
+    
+    @Autowired
+    @Qualifier("sseEventExecutor")
+    private ThreadPoolTaskExecutor sseEventExecutor;
+    
+    @Value("${notification.sse.timeout-ms:1800000}")
+    private long timeoutMs;
+    
+    @Value("${notification.sse.subscriber-queue-capacity:64}")
+    private int subscriberQueueCapacity;
+    
+    public NotificationEventBroker(MeterRegistry meterRegistry) {
+        Gauge.builder("notification.sse.subscriptions", this, NotificationEventBroker::subscriptionCount)
+                .description("Open Server-Sent Events subscriptions")
+                .register(meterRegistry);
+    }
+    
+    // Empty if the loader finds no such notification
+    public Optional<SseEmitter> subscribeToNotification(Long id, Function<Long, Optional<NotificationResponse>> loader) {
+        Subscriber subscriber = register(notificationSubscribers, id);
+        Optional<NotificationResponse> current = loader.apply(id);
+        if (current.isEmpty()) {
+            subscriber.unregister.run();
+            return Optional.empty();
+        }
+        // Nothing more will happen to a terminal notification, so close right after the snapshot
+        enqueue(subscriber, new Outgoing(serialize(current.get()), isTerminal(current.get())));
+        return Optional.of(subscriber.emitter);
+    }
+    
+    public SseEmitter subscribeToTransaction(String transactionId, Function<String, List<NotificationResponse>> loader) {
+        Subscriber subscriber = register(transactionSubscribers, transactionId);
+        for (NotificationResponse notification : loader.apply(transactionId)) {
+            enqueue(subscriber, new Outgoing(serialize(notification), false));
+        }
+        return subscriber.emitter;
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(NotificationStatusChangedEvent event) {
+        publish(event.getNotification());
+    }
+    
+    private void publish(NotificationResponse notification) {
+        Set<Subscriber> byId = notificationSubscribers.get(notification.getId());
+        Set<Subscriber> byTransaction = transactionSubscribers.get(notification.getTransactionId());
+        if (byId == null && byTransaction == null) {
+            return;
+        }
+        
+        // Serialize once, not once per subscriber
+        String json = serialize(notification);
+        boolean terminal = isTerminal(notification);
+        if (byId != null) {
+            for (Subscriber subscriber : byId) {
+                enqueue(subscriber, new Outgoing(json, terminal));
+            }
+        }
+        if (byTransaction != null) {
+            for (Subscriber subscriber : byTransaction) {
+                enqueue(subscriber, new Outgoing(json, false));
+            }
+        }
+    }
+    
+    // Keeps idle connections alive through proxies and prunes clients that went away. Also closes streams whose
+    // notification finished on another node (or whose event was dropped by a full fan-out queue)
+    @Scheduled(fixedDelayString = "${notification.sse.heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        Set<Long> watched = Set.copyOf(notificationSubscribers.keySet());
+        if (!watched.isEmpty()) {
+            notificationService.getFinishedNotifications(watched).forEach(this::publish);
+        }
+        
+        notificationSubscribers.values().forEach(subscribers -> subscribers.forEach(s -> enqueue(s, Outgoing.KEEPALIVE)));
+        transactionSubscribers.values().forEach(subscribers -> subscribers.forEach(s -> enqueue(s, Outgoing.KEEPALIVE)));
+    }
+    
+    // Package-private so tests can substitute an emitter whose writes stall
+    SseEmitter newEmitter() {
+        return new SseEmitter(timeoutMs);
+    }
+    
+    private <K> Subscriber register(Map<K, Set<Subscriber>> subscribers, K key) {
+        SseEmitter emitter = newEmitter();
+        Subscriber subscriber = new Subscriber(emitter, subscriberQueueCapacity);
+        subscriber.unregister = () -> subscribers.computeIfPresent(key, (k, registered) -> {
+            registered.remove(subscriber);
+            return registered.isEmpty() ? null : registered;
+        });
+        subscribers.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        emitter.onCompletion(subscriber.unregister);
+        emitter.onTimeout(subscriber.unregister);
+        emitter.onError(e -> subscriber.unregister.run());
+        return subscriber;
+    }
+    
+    private void enqueue(Subscriber subscriber, Outgoing outgoing) {
+        if (!subscriber.pending.offer(outgoing)) {
+            // The client has not taken a whole queue's worth of events; stop feeding it and close the stream
+            // once the queue drains, it can reconnect and start over from a fresh snapshot
+            logger.warn("SSE subscriber is not keeping up, closing its stream");
+            subscriber.unregister.run();
+            subscriber.pending.clear();
+            subscriber.pending.offer(Outgoing.CLOSE);
+        }
+        if (!subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sseEventExecutor.execute(() -> drain(subscriber));
+        } catch (TaskRejectedException e) {
+            // Subscribers can always fall back to GET; the queued events go out with the next event or heartbeat
+            subscriber.draining.set(false);
+            logger.warn("SSE fan-out queue is full, delaying events for a subscriber");
+        }
+    }
+    
+    // Runs on sseEventExecutor; the draining flag guarantees one writer per emitter, in queue order
+    private void drain(Subscriber subscriber) {
+        do {
+            Outgoing next;
+            while ((next = subscriber.pending.poll()) != null) {
+                if (!write(subscriber, next)) {
+                    // Emitter is closed: keep draining=true so nothing is scheduled for it again
+                    subscriber.pending.clear();
+                    return;
+                }
+            }
+            subscriber.draining.set(false);
+        } while (!subscriber.pending.isEmpty() && subscriber.draining.compareAndSet(false, true));
+    }
+    
+    // False once the emitter is closed, either after a final event or because the client went away
+    private boolean write(Subscriber subscriber, Outgoing outgoing) {
+        SseEmitter emitter = subscriber.emitter;
+        try {
+            if (outgoing.json() != null) {
+                emitter.send(SseEmitter.event().name(EVENT_NAME).data(outgoing.json(), MediaType.APPLICATION_JSON));
+            } else if (!outgoing.last()) {
+                emitter.send(SseEmitter.event().comment("keepalive"));
+            }
+            if (outgoing.last()) {
+                subscriber.unregister.run();
+                emitter.complete();
+                return false;
+            }
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Client disconnected, write timed out or emitter already completed
+            subscriber.unregister.run();
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+    
+    private String serialize(NotificationResponse notification) {
+        try {
+            return objectMapper.writeValueAsString(notification);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize notification ID: " + notification.getId(), e);
+        }
+    }
+    
+    private static boolean isTerminal(NotificationResponse notification) {
+        return notification.getStatus() == NotificationStatus.SENT || notification.getStatus() == NotificationStatus.FAILED;
+    }
+    
+    private int subscriptionCount() {
+        int count = 0;
+        for (Set<Subscriber> subscribers : notificationSubscribers.values()) {
+            count += subscribers.size();
+        }
+        for (Set<Subscriber> subscribers : transactionSubscribers.values()) {
+            count += subscribers.size();
+        }
+        return count;
+    }
+    
+    private static final class Subscriber {
+        
+        private final SseEmitter emitter;
+        
+        private final ArrayBlockingQueue<Outgoing> pending;
+        
+        private final AtomicBoolean draining = new AtomicBoolean();
+        
+        private volatile Runnable unregister;
+        
+        private Subscriber(SseEmitter emitter, int queueCapacity) {
+            this.emitter = emitter;
+            this.pending = new ArrayBlockingQueue<>(queueCapacity);
+        }
+    }
+    
+    // json is null for a keepalive comment; last closes the stream after the write
+    private record Outgoing(String json, boolean last) {
+        
+        private static final Outgoing KEEPALIVE = new Outgoing(null, false);
+        
+        private static final Outgoing CLOSE = new Outgoing(null, true);
+    }
+}
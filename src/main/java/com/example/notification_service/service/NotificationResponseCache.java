@@ -0,0 +1,125 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.dto.NotificationResponse;
+import com.example.notification_service.event.NotificationStatusChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU cache of GET /api/notifications/{id} bodies, held as serialized JSON so hits skip
+ * both the database and Jackson. Entries are versioned by updatedAt: every committed
+ * NotificationStatusChangedEvent writes the new state, and an older read-through load can
+ * never overwrite a newer entry. The TTL bounds staleness for changes made by other nodes
+ * in cluster mode.
+ */
+@Component
+public class NotificationResponseCache {
+    
+    private final ObjectMapper objectMapper;
+    
+    private final Map<Long, Entry> entries;
+    
+    private final long ttlNanos;
+    
+    private final Counter hits;
+    
+    private final Counter misses;
+    
+    public NotificationResponseCache(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                     @Value("${notification.cache.max-entries:10000}") int maxEntries,
+                                     @Value("${notification.cache.ttl-ms:5000}") long ttlMs) {
+        this.objectMapper = objectMapper;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        });
+        this.hits = Counter.builder("notification.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("notification.cache.requests").tag("result", "miss").register(meterRegistry);
+    }
+    
+    public Optional<byte[]> getOrLoad(Long id, Function<Long, Optional<NotificationResponse>> loader) {
+        Entry entry = entries.get(id);
+        if (entry != null && entry.json != null && entry.expiresAtNanos - System.nanoTime() > 0) {
+            hits.increment();
+            return Optional.of(entry.json);
+        }
+        misses.increment();
+        
+        Optional<NotificationResponse> loaded = loader.apply(id);
+        if (loaded.isEmpty()) {
+            return Optional.empty();
+        }
+        byte[] json = serialize(loaded.get());
+        store(id, new Entry(versionOf(loaded.get()), json, System.nanoTime() + ttlNanos));
+        return Optional.of(json);
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(NotificationStatusChangedEvent event) {
+        update(event.getNotification());
+    }
+    
+    public void update(NotificationResponse response) {
+        store(response.getId(), new Entry(versionOf(response), serialize(response), System.nanoTime() + ttlNanos));
+    }
+    
+    // Leaves a tombstone so a read-through that loaded the previous state cannot re-populate it
+    public void invalidate(Long id, LocalDateTime version) {
+        store(id, new Entry(truncate(version), null, 0));
+    }
+    
+    private void store(Long id, Entry entry) {
+        synchronized (entries) {
+            Entry existing = entries.get(id);
+            if (existing == null || !entry.version.isBefore(existing.version)) {
+                entries.put(id, entry);
+            }
+        }
+    }
+    
+    private byte[] serialize(NotificationResponse response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize notification ID: " + response.getId(), e);
+        }
+    }
+    
+    private static LocalDateTime versionOf(NotificationResponse response) {
+        return truncate(response.getUpdatedAt() != null ? response.getUpdatedAt() : response.getCreatedAt());
+    }
+    
+    // The entity already keeps microseconds; also applied here for versions that come from elsewhere
+    private static LocalDateTime truncate(LocalDateTime version) {
+        return version.truncatedTo(ChronoUnit.MICROS);
+    }
+    
+    private static class Entry {
+        private final LocalDateTime version;
+        private final byte[] json;
+        private final long expiresAtNanos;
+        
+        Entry(LocalDateTime version, byte[] json, long expiresAtNanos) {
+            this.version = version;
+            this.json = json;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
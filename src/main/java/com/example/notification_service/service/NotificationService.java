@@ -3,20 +3,37 @@ package com.example.notification_service.service;
 import com.example.notification_service.dto.NotificationRequest;
 import com.example.notification_service.dto.NotificationResponse;
 import com.example.notification_service.entity.Notification;
+import com.example.notification_service.entity.Notification.Channel;
 import com.example.notification_service.entity.Notification.NotificationStatus;
+import com.example.notification_service.event.NotificationStatusChangedEvent;
+import com.example.notification_service.jfr.NotificationCreateEvent;
+import com.example.notification_service.jfr.RetryScanEvent;
 import com.example.notification_service.repository.NotificationRepository;
+import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,122 +46,263 @@ public class NotificationService {
     private NotificationRepository notificationRepository;
     
     @Autowired
-    private EmailService emailService;
+    private DeliveryChannelRouter deliveryChannelRouter;
+    
+    @Autowired
+    private NotificationResponseCache notificationResponseCache;
+    
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+    
+    // Status changes go out as NotificationStatusChangedEvent; the cache and SSE subscribers listen after commit
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    // Only present when notification.cluster.enabled=true
+    @Autowired(required = false)
+    private PartitionOwnershipService partitionOwnershipService;
+    
+    @Value("${notification.cluster.partitions:16}")
+    private int partitionCount;
+    
+    @Value("${notification.retry.backoff-ms:60000}")
+    private long retryBackoffMs;
+    
+    // Kept below the admission backlog-age soft threshold so a lost dispatch is recovered before it sheds traffic
+    @Value("${notification.retry.stale-pending-ms:20000}")
+    private long stalePendingMs;
+    
+    // Well above the slowest provider timeout: a row SENDING for this long lost its node mid-send
+    @Value("${notification.retry.stale-sending-ms:300000}")
+    private long staleSendingMs;
+    
+    @Value("${notification.retry.batch-size:200}")
+    private int retryBatchSize;
+    
+    @Value("${notification.retry.max-queue-depth:50}")
+    private int retryMaxQueueDepth;
+    
+    private final TransactionTemplate transactionTemplate;
+    
+    public NotificationService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
     
     public NotificationResponse createNotification(NotificationRequest request) {
+        NotificationCreateEvent createEvent = new NotificationCreateEvent();
+        createEvent.begin();
+        createEvent.transactionId = request.getTransactionId();
+        createEvent.notificationType = request.getNotificationType();
+        try {
+            return createNotification(request, createEvent);
+        } finally {
+            createEvent.commit();
+        }
+    }
+    
+    private NotificationResponse createNotification(NotificationRequest request, NotificationCreateEvent createEvent) {
         logger.info("Creating notification for transaction: {}", request.getTransactionId());
         
         // Check for existing notification (idempotency check)
+        long checkStart = System.nanoTime();
         Optional<Notification> existingNotification = notificationRepository
                 .findByTransactionIdAndNotificationType(request.getTransactionId(), request.getNotificationType());
+        createEvent.idempotencyCheckDuration = System.nanoTime() - checkStart;
         
         if (existingNotification.isPresent()) {
             logger.info("Notification already exists for transaction: {} and type: {}", 
                     request.getTransactionId(), request.getNotificationType());
+            createEvent.idempotencyHit = true;
+            createEvent.notificationId = existingNotification.get().getId();
             return convertToResponse(existingNotification.get());
         }
         
+        Channel channel = deliveryChannelRouter.resolve(request.getChannel(), request.getNotificationType());
+        deliveryChannelRouter.channelFor(channel).validateRecipient(request.getRecipient());
+        createEvent.channel = channel.name();
+        
+        long insertStart = System.nanoTime();
         try {
             Notification notification = convertToEntity(request);
+            notification.setChannel(channel);
             notification = notificationRepository.save(notification);
+            createEvent.insertDuration = System.nanoTime() - insertStart;
+            createEvent.notificationId = notification.getId();
             
             // Process notification asynchronously
-            processNotificationAsync(notification);
+            notificationDispatcher.dispatchAfterCommit(notification, notification.getVersion());
             
             logger.info("Notification created successfully with ID: {}", notification.getId());
-            return convertToResponse(notification);
-            
+            NotificationResponse response = convertToResponse(notification);
+            eventPublisher.publishEvent(new NotificationStatusChangedEvent(response));
+            return response;
+        
         } catch (DataIntegrityViolationException e) {
+            // Only a constraint violation can mean a concurrent duplicate; anything else (e.g. value too long) is a real error
+            if (!(e.getCause() instanceof ConstraintViolationException)) {
+                throw e;
+            }
             logger.error("Duplicate notification attempt for transaction: {}", request.getTransactionId(), e);
+            createEvent.insertDuration = System.nanoTime() - insertStart;
             // Handle race condition - another thread created the same notification
             Optional<Notification> duplicateNotification = notificationRepository
                     .findByTransactionIdAndNotificationType(request.getTransactionId(), request.getNotificationType());
             if (duplicateNotification.isPresent()) {
+                createEvent.idempotencyHit = true;
+                createEvent.notificationId = duplicateNotification.get().getId();
                 return convertToResponse(duplicateNotification.get());
             }
             throw e;
         }
     }
     
-    @Async("notificationTaskExecutor")
-    public void processNotificationAsync(Notification notification) {
-        logger.info("Processing notification ID: {}", notification.getId());
+    // Pages through due rows in short transactions and only claims as many as each channel queue can take;
+    // the rest stays due and is picked up by a later scan
+    @Scheduled(fixedDelay = 30000) // Run every 30 seconds
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void retryFailedNotifications() {
+        logger.debug("Checking for failed notifications to retry");
         
-        try {
-            boolean sent = emailService.sendEmail(
-                    notification.getRecipient(),
-                    notification.getSubject(),
-                    notification.getMessage()
-            );
-            
-            if (sent) {
-                notification.setStatus(NotificationStatus.SENT);
-                notification.setSentAt(LocalDateTime.now());
-                logger.info("Notification sent successfully for ID: {}", notification.getId());
-            } else {
-                throw new RuntimeException("Email service returned false");
+        Set<Integer> ownedPartitions = null;
+        if (partitionOwnershipService != null) {
+            // Cluster mode: only scan the partitions this node holds a lease for
+            ownedPartitions = partitionOwnershipService.getOwnedPartitions();
+            if (ownedPartitions.isEmpty()) {
+                logger.debug("Node {} owns no partitions, skipping retry scan", partitionOwnershipService.getNodeId());
+                return;
+            }
+        }
+        
+        // Retry notifications whose last attempt is older than the backoff, and PENDING ones that were never
+        // picked up (executor tasks are lost on restart); FAILED ones live in the dead-letter store
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime retryThreshold = now.minusNanos(retryBackoffMs * 1_000_000);
+        LocalDateTime pendingThreshold = now.minusNanos(stalePendingMs * 1_000_000);
+        LocalDateTime sendingThreshold = now.minusNanos(staleSendingMs * 1_000_000);
+        RetryScanEvent scanEvent = new RetryScanEvent();
+        scanEvent.begin();
+        scanEvent.ownedPartitions = ownedPartitions != null ? ownedPartitions.size() : -1;
+        
+        Set<Channel> saturated = EnumSet.noneOf(Channel.class);
+        long afterId = 0;
+        int requeued = 0;
+        while (saturated.size() < Channel.values().length) {
+            long cursor = afterId;
+            Set<Integer> partitions = ownedPartitions;
+            long queryStart = System.nanoTime();
+            List<Notification> page = transactionTemplate.execute(status -> {
+                List<Notification> due = partitions != null
+                        ? notificationRepository.findDueForRetryInPartitions(NotificationStatus.RETRYING, retryThreshold,
+                                NotificationStatus.PENDING, pendingThreshold, NotificationStatus.SENDING, sendingThreshold,
+                                partitions, cursor, PageRequest.of(0, retryBatchSize))
+                        : notificationRepository.findDueForRetry(NotificationStatus.RETRYING, retryThreshold,
+                                NotificationStatus.PENDING, pendingThreshold, NotificationStatus.SENDING, sendingThreshold,
+                                cursor, PageRequest.of(0, retryBatchSize));
+                scanEvent.queryDuration += System.nanoTime() - queryStart;
+                long requeueStart = System.nanoTime();
+                scanEvent.batchSize += requeuePage(stillOwned(due), saturated);
+                scanEvent.requeueDuration += System.nanoTime() - requeueStart;
+                return due;
+            });
+            if (page.isEmpty()) {
+                break;
+            }
+            afterId = page.get(page.size() - 1).getId();
+            if (page.size() < retryBatchSize) {
+                break;
+            }
+            if (partitionOwnershipService != null && partitionOwnershipService.getOwnedPartitions().isEmpty()) {
+                logger.warn("Node {} lost its partition leases during the retry scan, stopping", partitionOwnershipService.getNodeId());
+                break;
             }
-            
-        } catch (Exception e) {
-            logger.error("Failed to send notification ID: {}", notification.getId(), e);
-            handleNotificationFailure(notification, e.getMessage());
         }
+        scanEvent.commit();
         
-        notificationRepository.save(notification);
+        if (scanEvent.batchSize > 0 || !saturated.isEmpty()) {
+            logger.info("Requeued {} notifications for retry{}", scanEvent.batchSize,
+                    saturated.isEmpty() ? "" : "; " + saturated + " queue(s) near capacity, the rest waits for the next scan");
+        }
     }
     
-    private void handleNotificationFailure(Notification notification, String errorMessage) {
-        notification.setRetryCount(notification.getRetryCount() + 1);
-        notification.setErrorMessage(errorMessage);
-        
-        if (notification.getRetryCount() >= notification.getMaxRetry()) {
-            notification.setStatus(NotificationStatus.FAILED);
-            logger.error("Notification failed permanently after {} retries. ID: {}", 
-                    notification.getMaxRetry(), notification.getId());
-        } else {
-            notification.setStatus(NotificationStatus.RETRYING);
-            logger.info("Notification will be retried. Attempt {}/{}. ID: {}", 
-                    notification.getRetryCount(), notification.getMaxRetry(), notification.getId());
+    // Ownership may have lapsed while the page was read (failed heartbeats), so only claim rows still leased to this node
+    private List<Notification> stillOwned(List<Notification> page) {
+        if (partitionOwnershipService == null) {
+            return page;
         }
+        Set<Integer> owned = partitionOwnershipService.getOwnedPartitions();
+        return page.stream()
+                .filter(notification -> notification.getPartitionId() != null && owned.contains(notification.getPartitionId()))
+                .toList();
     }
     
-    @Scheduled(fixedDelay = 30000) // Run every 30 seconds
-    public void retryFailedNotifications() {
-        logger.debug("Checking for failed notifications to retry");
-        
-        LocalDateTime threshold = LocalDateTime.now().minusMinutes(5); // Retry notifications older than 5 minutes
-        List<Notification> failedNotifications = notificationRepository
-                .findFailedNotificationsForRetry(NotificationStatus.FAILED, threshold);
-        
-        logger.info("Found {} failed notifications to retry", failedNotifications.size());
-        
-        for (Notification notification : failedNotifications) {
-            notification.setStatus(NotificationStatus.RETRYING);
-            notificationRepository.save(notification);
-            processNotificationAsync(notification);
+    // Claims rows up to each channel's queue headroom; dispatch happens once the page transaction commits
+    private int requeuePage(List<Notification> page, Set<Channel> saturated) {
+        Map<Channel, Integer> claimed = new EnumMap<>(Channel.class);
+        int requeued = 0;
+        for (Notification notification : page) {
+            Channel channel = notification.getChannel() != null ? notification.getChannel() : Channel.EMAIL;
+            int inPage = claimed.getOrDefault(channel, 0);
+            if (saturated.contains(channel) || deliveryChannelRouter.queueDepth(channel) + inPage >= retryMaxQueueDepth) {
+                saturated.add(channel);
+                continue;
+            }
+            // Moving updatedAt keeps the row from being due again while it waits in the queue, and the version
+            // bump retires any task still queued for it. A row claimed for sending since the page was read is skipped
+            LocalDateTime updatedAt = Notification.now();
+            if (notificationRepository.updateStatusIfVersion(notification.getId(), notification.getVersion(),
+                    NotificationStatus.RETRYING, updatedAt) == 0) {
+                continue;
+            }
+            claimed.put(channel, inPage + 1);
+            Long id = notification.getId();
+            afterCommit(() -> notificationResponseCache.invalidate(id, updatedAt));
+            notificationDispatcher.dispatchAfterCommit(notification, notification.getVersion() + 1);
+            requeued++;
         }
+        return requeued;
+    }
+    
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
     
     @Transactional(readOnly = true)
     public Optional<NotificationResponse> getNotification(Long id) {
         return notificationRepository.findById(id)
-                .map(this::convertToResponse);
+                .map(notification -> convertToResponse(notification, true));
     }
     
     @Transactional(readOnly = true)
     public List<NotificationResponse> getNotificationsByStatus(NotificationStatus status) {
         return notificationRepository.findByStatus(status)
                 .stream()
-                .map(this::convertToResponse)
+                .map(notification -> convertToResponse(notification, false))
                 .collect(Collectors.toList());
     }
     
     @Transactional(readOnly = true)
     public List<NotificationResponse> getNotificationsByTransactionId(String transactionId) {
-        return notificationRepository.findAll()
+        return notificationRepository.findByTransactionId(transactionId)
+                .stream()
+                .map(notification -> convertToResponse(notification, false))
+                .collect(Collectors.toList());
+    }
+    
+    // Lets SSE streams catch up on notifications finished by another node, whose events never reach this one
+    @Transactional(readOnly = true)
+    public List<NotificationResponse> getFinishedNotifications(Collection<Long> ids) {
+        return notificationRepository.findByIdInAndStatusIn(ids, EnumSet.of(NotificationStatus.SENT, NotificationStatus.FAILED))
                 .stream()
-                .filter(n -> n.getTransactionId().equals(transactionId))
-                .map(this::convertToResponse)
+                .map(notification -> convertToResponse(notification, true))
                 .collect(Collectors.toList());
     }
     
@@ -152,6 +310,7 @@ public class NotificationService {
         Notification notification = new Notification();
         notification.setTransactionId(request.getTransactionId());
         notification.setNotificationType(request.getNotificationType());
+        notification.setPartitionId(PartitionOwnershipService.partitionOf(request.getTransactionId(), partitionCount));
         notification.setRecipient(request.getRecipient());
         notification.setSubject(request.getSubject());
         notification.setMessage(request.getMessage());
@@ -160,13 +319,21 @@ public class NotificationService {
     }
     
     private NotificationResponse convertToResponse(Notification notification) {
+        return convertToResponse(notification, true);
+    }
+    
+    // List views skip the message body so the lazy column is never fetched for them
+    static NotificationResponse convertToResponse(Notification notification, boolean includeMessage) {
         NotificationResponse response = new NotificationResponse();
         response.setId(notification.getId());
         response.setTransactionId(notification.getTransactionId());
         response.setNotificationType(notification.getNotificationType());
+        response.setChannel(notification.getChannel());
         response.setRecipient(notification.getRecipient());
         response.setSubject(notification.getSubject());
-        response.setMessage(notification.getMessage());
+        if (includeMessage) {
+            response.setMessage(notification.getMessage());
+        }
         response.setStatus(notification.getStatus());
         response.setRetryCount(notification.getRetryCount());
         response.setMaxRetry(notification.getMaxRetry());
@@ -0,0 +1,190 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.entity.ClusterNode;
+import com.example.notification_service.entity.PartitionLease;
+import com.example.notification_service.repository.ClusterNodeRepository;
+import com.example.notification_service.repository.PartitionLeaseRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Assigns notification partitions to cluster nodes through leases stored in the database.
+ * Every heartbeat renews this node's leases, then releases or acquires partitions so that
+ * each live node owns a fair share. A node that stops heart-beating loses its partitions
+ * once its leases expire; locally it stops treating them as owned a safety margin earlier,
+ * so a node whose heartbeats fail never scans partitions another node may already hold.
+ */
+@Service
+@ConditionalOnProperty(name = "notification.cluster.enabled", havingValue = "true")
+public class PartitionOwnershipService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PartitionOwnershipService.class);
+    
+    @Autowired
+    private PartitionLeaseRepository partitionLeaseRepository;
+    
+    @Autowired
+    private ClusterNodeRepository clusterNodeRepository;
+    
+    private final TransactionTemplate transactionTemplate;
+    
+    private final String nodeId;
+    
+    @Value("${notification.cluster.partitions:16}")
+    private int partitionCount;
+    
+    @Value("${notification.cluster.lease-duration-ms:30000}")
+    private long leaseDurationMs;
+    
+    // Covers clock drift between nodes and the time between reading ownership and acting on it
+    @Value("${notification.cluster.lease-safety-margin-ms:5000}")
+    private long leaseSafetyMarginMs;
+    
+    private volatile Set<Integer> ownedPartitions = Collections.emptySet();
+    
+    // System.nanoTime() after which ownedPartitions is no longer backed by a live lease
+    private volatile long validUntilNanos = System.nanoTime();
+    
+    public PartitionOwnershipService(PlatformTransactionManager transactionManager,
+                                     @Value("${notification.cluster.node-id:}") String nodeId) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.nodeId = StringUtils.hasText(nodeId) ? nodeId : UUID.randomUUID().toString();
+    }
+    
+    public static int partitionOf(String transactionId, int partitionCount) {
+        return Math.floorMod(transactionId.hashCode(), partitionCount);
+    }
+    
+    public String getNodeId() {
+        return nodeId;
+    }
+    
+    // Empty once the last successful renewal is older than the lease minus the safety margin
+    public Set<Integer> getOwnedPartitions() {
+        if (System.nanoTime() - validUntilNanos >= 0) {
+            return Collections.emptySet();
+        }
+        return ownedPartitions;
+    }
+    
+    public boolean owns(int partitionId) {
+        return getOwnedPartitions().contains(partitionId);
+    }
+    
+    @Scheduled(fixedDelayString = "${notification.cluster.heartbeat-interval-ms:10000}")
+    public synchronized void heartbeat() {
+        // Taken before the renewal so the local deadline never outlives the lease written to the database
+        long renewStartNanos = System.nanoTime();
+        try {
+            ensureLeaseRows();
+            Set<Integer> owned = transactionTemplate.execute(status -> rebalance());
+            if (!owned.equals(ownedPartitions)) {
+                logger.info("Node {} now owns {} partitions: {}", nodeId, owned.size(), owned);
+            }
+            ownedPartitions = Collections.unmodifiableSet(owned);
+            validUntilNanos = renewStartNanos + TimeUnit.MILLISECONDS.toNanos(leaseDurationMs - leaseSafetyMarginMs);
+        } catch (Exception e) {
+            // The previous view stays usable only until its deadline; getOwnedPartitions() is empty after that
+            logger.error("Cluster heartbeat failed for node: {}, ownership valid for another {} ms", nodeId,
+                    Math.max(0, TimeUnit.NANOSECONDS.toMillis(validUntilNanos - System.nanoTime())), e);
+        }
+    }
+    
+    @PreDestroy
+    public synchronized void leave() {
+        logger.info("Node {} leaving cluster, releasing {} partitions", nodeId, ownedPartitions.size());
+        ownedPartitions = Collections.emptySet();
+        validUntilNanos = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                partitionLeaseRepository.releaseAll(nodeId);
+                clusterNodeRepository.deleteById(nodeId);
+            });
+        } catch (Exception e) {
+            logger.warn("Failed to release partitions for node: {}", nodeId, e);
+        }
+    }
+    
+    private void ensureLeaseRows() {
+        Set<Integer> existing = new HashSet<>(partitionLeaseRepository.findAllPartitionIds());
+        for (int partitionId = 0; partitionId < partitionCount; partitionId++) {
+            if (existing.contains(partitionId)) {
+                continue;
+            }
+            int id = partitionId;
+            try {
+                transactionTemplate.executeWithoutResult(status -> partitionLeaseRepository.save(new PartitionLease(id)));
+            } catch (DataIntegrityViolationException e) {
+                // Another node created the same lease row concurrently
+                logger.debug("Lease row for partition {} already created by another node", id);
+            }
+        }
+    }
+    
+    private Set<Integer> rebalance() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusNanos(leaseDurationMs * 1_000_000);
+        
+        ClusterNode self = clusterNodeRepository.findById(nodeId).orElseGet(() -> new ClusterNode(nodeId));
+        self.setLastHeartbeat(now);
+        clusterNodeRepository.save(self);
+        clusterNodeRepository.flush();
+        
+        List<String> liveNodes = clusterNodeRepository.findLiveNodeIds(now.minusNanos(leaseDurationMs * 1_000_000));
+        int target = fairShare(liveNodes);
+        
+        partitionLeaseRepository.renewAll(nodeId, expiresAt);
+        List<Integer> owned = new ArrayList<>(partitionLeaseRepository.findPartitionIdsOwnedBy(nodeId));
+        
+        if (owned.size() > target) {
+            // Give up the surplus so newly joined nodes can pick it up on their next heartbeat
+            List<Integer> surplus = new ArrayList<>(owned.subList(target, owned.size()));
+            partitionLeaseRepository.release(nodeId, surplus);
+            owned.removeAll(surplus);
+        } else if (owned.size() < target) {
+            for (Integer partitionId : partitionLeaseRepository.findAvailablePartitionIds(now)) {
+                if (owned.size() >= target) {
+                    break;
+                }
+                if (partitionLeaseRepository.tryAcquire(partitionId, nodeId, now, expiresAt) == 1) {
+                    owned.add(partitionId);
+                }
+            }
+        }
+        
+        return new TreeSet<>(owned);
+    }
+    
+    private int fairShare(List<String> liveNodes) {
+        int index = liveNodes.indexOf(nodeId);
+        int nodes = liveNodes.size();
+        if (index < 0) {
+            index = nodes;
+            nodes++;
+        }
+        // Spread the remainder over the lowest node ids so shares always add up to partitionCount
+        return partitionCount / nodes + (index < partitionCount % nodes ? 1 : 0);
+    }
+}
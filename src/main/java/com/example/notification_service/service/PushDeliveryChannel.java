@@ -0,0 +1,31 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.entity.Notification;
+import com.example.notification_service.entity.Notification.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+// Local stub transport until a push provider is integrated
+@Component
+public class PushDeliveryChannel implements DeliveryChannel {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PushDeliveryChannel.class);
+    
+    @Override
+    public Channel getChannel() {
+        return Channel.PUSH;
+    }
+    
+    @Override
+    public void validateRecipient(String recipient) {
+        if (recipient == null || recipient.isBlank() || recipient.length() > Notification.RECIPIENT_MAX_LENGTH) {
+            throw new IllegalArgumentException("Invalid device token");
+        }
+    }
+    
+    @Override
+    public void send(Notification notification) {
+        logger.info("Push notification '{}' sent successfully to device: {}", notification.getSubject(), notification.getRecipient());
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.entity.Notification;
+import com.example.notification_service.entity.Notification.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Pattern;
+
+// Local stub transport until an SMS gateway is integrated
+@Component
+public class SmsDeliveryChannel implements DeliveryChannel {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SmsDeliveryChannel.class);
+    
+    private static final Pattern PHONE_NUMBER = Pattern.compile("^\\+?[0-9]{8,15}$");
+    
+    @Override
+    public Channel getChannel() {
+        return Channel.SMS;
+    }
+    
+    @Override
+    public void validateRecipient(String recipient) {
+        if (recipient == null || !PHONE_NUMBER.matcher(recipient).matches()) {
+            throw new IllegalArgumentException("Invalid phone number format");
+        }
+    }
+    
+    @Override
+    public void send(Notification notification) {
+        logger.info("SMS sent successfully to: {}", notification.getRecipient());
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.notification_service.entity;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompressedTextConverterTests {
+
+	private final CompressedTextConverter converter = new CompressedTextConverter();
+
+	@Test
+	void templateMessagesCompressAndRoundTrip() {
+		String message = "Your payment for transaction TXN-20260111-000123 has been processed successfully.";
+
+		byte[] stored = converter.convertToDatabaseColumn(message);
+
+		assertThat(stored.length).isLessThan(message.length() / 2);
+		assertThat(converter.convertToEntityAttribute(stored)).isEqualTo(message);
+	}
+
+	@Test
+	void shortAndNullMessagesAreStoredRaw() {
+		assertThat(converter.convertToDatabaseColumn("Hi")).containsExactly(0, 'H', 'i');
+		assertThat(converter.convertToEntityAttribute(converter.convertToDatabaseColumn("Hi"))).isEqualTo("Hi");
+		assertThat(converter.convertToDatabaseColumn(null)).isNull();
+		assertThat(converter.convertToEntityAttribute(null)).isNull();
+	}
+
+	@Test
+	void failedTemplateCompressesToo() {
+		String message = "Your payment for transaction TXN-20260111-000123 has failed. Please try again.";
+
+		byte[] stored = converter.convertToDatabaseColumn(message);
+
+		assertThat(stored.length).isLessThan(message.length() / 2);
+		assertThat(converter.convertToEntityAttribute(stored)).isEqualTo(message);
+	}
+
+}
@@ -0,0 +1,25 @@
+package com.example.notification_service.entity;
+
+import com.example.notification_service.entity.Notification.FailureReason;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FailureReasonTests {
+
+	@Test
+	void classifiesKnownProviderErrors() {
+		assertThat(FailureReason.classify("Read timed out")).isEqualTo(FailureReason.TIMEOUT);
+		assertThat(FailureReason.classify("SMTP TIMEOUT after 30s")).isEqualTo(FailureReason.TIMEOUT);
+		assertThat(FailureReason.classify("Provider unavailable")).isEqualTo(FailureReason.PROVIDER_UNAVAILABLE);
+		assertThat(FailureReason.classify("Connection refused")).isEqualTo(FailureReason.PROVIDER_UNAVAILABLE);
+		assertThat(FailureReason.classify("sleep interrupted")).isEqualTo(FailureReason.INTERRUPTED);
+	}
+
+	@Test
+	void fallsBackToUnknown() {
+		assertThat(FailureReason.classify(null)).isEqualTo(FailureReason.UNKNOWN);
+		assertThat(FailureReason.classify("Invalid recipient")).isEqualTo(FailureReason.UNKNOWN);
+	}
+
+}
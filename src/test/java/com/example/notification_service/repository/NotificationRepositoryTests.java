@@ -0,0 +1,168 @@
+package com.example.notification_service.repository;
+
+import com.example.notification_service.entity.Notification;
+import com.example.notification_service.entity.Notification.FailureReason;
+import com.example.notification_service.entity.Notification.NotificationStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class NotificationRepositoryTests {
+
+	private static final LocalDateTime NOW = LocalDateTime.now();
+
+	@Autowired
+	private NotificationRepository repository;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	private Notification save(String transactionId, NotificationStatus status, LocalDateTime lastChange, int partition) {
+		Notification notification = new Notification();
+		notification.setTransactionId(transactionId);
+		notification.setNotificationType("PAYMENT_SUCCESS");
+		notification.setRecipient("customer@example.com");
+		notification.setPartitionId(partition);
+		notification.setStatus(status);
+		notification.setCreatedAt(lastChange);
+		notification.setUpdatedAt(status == NotificationStatus.PENDING ? null : lastChange);
+		return repository.save(notification);
+	}
+
+	private List<Long> dueIds(long afterId, int pageSize) {
+		return repository.findDueForRetry(NotificationStatus.RETRYING, NOW.minusMinutes(1),
+						NotificationStatus.PENDING, NOW.minusSeconds(20), NotificationStatus.SENDING, NOW.minusMinutes(5),
+						afterId, PageRequest.of(0, pageSize))
+				.stream().map(Notification::getId).toList();
+	}
+
+	@Test
+	void dueForRetryHonoursBackoffStaleClaimsAndRetryBudget() {
+		Notification retryDue = save("TX-1", NotificationStatus.RETRYING, NOW.minusMinutes(2), 0);
+		save("TX-2", NotificationStatus.RETRYING, NOW.minusSeconds(30), 0);
+		Notification stalePending = save("TX-3", NotificationStatus.PENDING, NOW.minusSeconds(30), 0);
+		save("TX-4", NotificationStatus.PENDING, NOW.minusSeconds(5), 0);
+		save("TX-5", NotificationStatus.SENT, NOW.minusMinutes(2), 0);
+		save("TX-6", NotificationStatus.FAILED, NOW.minusMinutes(2), 0);
+		Notification exhausted = save("TX-7", NotificationStatus.RETRYING, NOW.minusMinutes(2), 0);
+		exhausted.setRetryCount(exhausted.getMaxRetry());
+		repository.saveAndFlush(exhausted);
+		save("TX-8", NotificationStatus.SENDING, NOW.minusMinutes(2), 0);
+		Notification staleSending = save("TX-9", NotificationStatus.SENDING, NOW.minusMinutes(10), 0);
+
+		assertThat(dueIds(0, 100)).containsExactly(retryDue.getId(), stalePending.getId(), staleSending.getId());
+	}
+
+	@Test
+	void dueForRetryIsKeysetPaged() {
+		Notification first = save("TX-1", NotificationStatus.RETRYING, NOW.minusMinutes(5), 0);
+		Notification second = save("TX-2", NotificationStatus.RETRYING, NOW.minusMinutes(5), 0);
+		Notification third = save("TX-3", NotificationStatus.RETRYING, NOW.minusMinutes(5), 0);
+
+		assertThat(dueIds(0, 2)).containsExactly(first.getId(), second.getId());
+		assertThat(dueIds(second.getId(), 2)).containsExactly(third.getId());
+		assertThat(dueIds(third.getId(), 2)).isEmpty();
+	}
+
+	@Test
+	void dueForRetryInPartitionsOnlyReturnsOwnedPartitions() {
+		Notification owned = save("TX-1", NotificationStatus.RETRYING, NOW.minusMinutes(5), 3);
+		save("TX-2", NotificationStatus.RETRYING, NOW.minusMinutes(5), 4);
+
+		List<Notification> due = repository.findDueForRetryInPartitions(NotificationStatus.RETRYING, NOW.minusMinutes(1),
+				NotificationStatus.PENDING, NOW.minusSeconds(20), NotificationStatus.SENDING, NOW.minusMinutes(5),
+				Set.of(3), 0L, PageRequest.of(0, 10));
+
+		assertThat(due).extracting(Notification::getId).containsExactly(owned.getId());
+	}
+
+	@Test
+	void onlyTheHolderOfTheCurrentVersionCanClaimTheRow() {
+		Notification notification = save("TX-1", NotificationStatus.PENDING, NOW, 0);
+		long dispatched = notification.getVersion();
+
+		// The retry scan re-dispatches the row while the original task is still queued
+		assertThat(repository.updateStatusIfVersion(notification.getId(), dispatched, NotificationStatus.RETRYING, NOW))
+				.isEqualTo(1);
+		assertThat(repository.updateStatusIfVersion(notification.getId(), dispatched, NotificationStatus.SENDING, NOW))
+				.isZero();
+		assertThat(repository.updateStatusIfVersion(notification.getId(), dispatched + 1, NotificationStatus.SENDING, NOW))
+				.isEqualTo(1);
+		assertThat(repository.updateStatusIfVersion(notification.getId(), dispatched + 1, NotificationStatus.SENDING, NOW))
+				.isZero();
+
+		Notification reloaded = repository.findById(notification.getId()).orElseThrow();
+		assertThat(reloaded.getStatus()).isEqualTo(NotificationStatus.SENDING);
+		assertThat(reloaded.getVersion()).isEqualTo(dispatched + 2);
+	}
+
+	private Notification deadLetter(String transactionId, String type, FailureReason reason, LocalDateTime deadLetteredAt) {
+		Notification notification = save(transactionId, NotificationStatus.FAILED, deadLetteredAt, 0);
+		notification.setNotificationType(type);
+		notification.setFailureReason(reason);
+		notification.setDeadLetteredAt(deadLetteredAt);
+		return repository.saveAndFlush(notification);
+	}
+
+	@Test
+	void deadLetterFiltersAreOptionalAndCombinable() {
+		Notification timeout = deadLetter("TX-1", "PAYMENT_SUCCESS", FailureReason.TIMEOUT, NOW.minusHours(3));
+		Notification unavailable = deadLetter("TX-2", "PAYMENT_FAILED", FailureReason.PROVIDER_UNAVAILABLE, NOW.minusHours(1));
+		Notification recent = deadLetter("TX-3", "PAYMENT_SUCCESS", FailureReason.TIMEOUT, NOW.minusMinutes(5));
+		save("TX-4", NotificationStatus.RETRYING, NOW.minusHours(1), 0);
+		// Created long before the outage window, but only dead-lettered inside it
+		Notification lateFailure = deadLetter("TX-5", "PAYMENT_SUCCESS", FailureReason.TIMEOUT, NOW.minusMinutes(10));
+		lateFailure.setCreatedAt(NOW.minusDays(1));
+		repository.saveAndFlush(lateFailure);
+
+		assertThat(repository.findDeadLettersAfter(NotificationStatus.FAILED, 0L, null, null, null, null, PageRequest.of(0, 10)))
+				.extracting(Notification::getId)
+				.containsExactly(timeout.getId(), unavailable.getId(), recent.getId(), lateFailure.getId());
+		assertThat(repository.findDeadLettersAfter(NotificationStatus.FAILED, 0L, "PAYMENT_SUCCESS", FailureReason.TIMEOUT,
+						NOW.minusHours(2), null, PageRequest.of(0, 10)))
+				.extracting(Notification::getId).containsExactly(recent.getId(), lateFailure.getId());
+		assertThat(repository.findDeadLettersAfter(NotificationStatus.FAILED, 0L, null, null, null, NOW.minusMinutes(30),
+						PageRequest.of(0, 10)))
+				.extracting(Notification::getId).containsExactly(timeout.getId(), unavailable.getId());
+		assertThat(repository.countDeadLetters(NotificationStatus.FAILED, null, FailureReason.TIMEOUT, null, null)).isEqualTo(3);
+		assertThat(repository.countDeadLetters(NotificationStatus.FAILED, null, null, NOW.minusMinutes(30), null)).isEqualTo(2);
+		assertThat(repository.countDeadLetters(NotificationStatus.FAILED, "PAYMENT_FAILED", null, null, null)).isEqualTo(1);
+	}
+
+	@Test
+	void deadLettersAreKeysetPaged() {
+		Notification first = deadLetter("TX-1", "PAYMENT_SUCCESS", FailureReason.TIMEOUT, NOW.minusHours(1));
+		Notification second = deadLetter("TX-2", "PAYMENT_SUCCESS", FailureReason.TIMEOUT, NOW.minusHours(1));
+
+		assertThat(repository.findDeadLettersAfter(NotificationStatus.FAILED, 0L, null, null, null, null, PageRequest.of(0, 1)))
+				.extracting(Notification::getId).containsExactly(first.getId());
+		assertThat(repository.findDeadLettersAfter(NotificationStatus.FAILED, first.getId(), null, null, null, null,
+						PageRequest.of(0, 1)))
+				.extracting(Notification::getId).containsExactly(second.getId());
+	}
+
+	@Test
+	void inMemoryTimestampsMatchTheReloadedRow() {
+		Notification notification = save("TX-1", NotificationStatus.PENDING, LocalDateTime.now(), 0);
+		notification.setStatus(NotificationStatus.SENT);
+		notification.setSentAt(LocalDateTime.of(2026, 1, 11, 10, 0, 0, 123_456_789));
+		repository.saveAndFlush(notification);
+		entityManager.clear();
+
+		Notification reloaded = repository.findById(notification.getId()).orElseThrow();
+
+		assertThat(reloaded.getCreatedAt()).isEqualTo(notification.getCreatedAt());
+		assertThat(reloaded.getUpdatedAt()).isEqualTo(notification.getUpdatedAt());
+		assertThat(reloaded.getSentAt()).isEqualTo(notification.getSentAt()).hasNano(123_456_000);
+	}
+
+}
@@ -0,0 +1,247 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.entity.Notification.Channel;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdaptiveConcurrencyLimiterTests {
+
+	private final DeliveryChannelRouter router = mock(DeliveryChannelRouter.class);
+
+	private final ThreadPoolTaskExecutor executor = executor(8);
+
+	private final ThreadPoolTaskExecutor smsExecutor = executor(1);
+
+	private final ThreadPoolTaskExecutor pushExecutor = executor(1);
+
+	private AdaptiveConcurrencyLimiter limiter;
+
+	private static ThreadPoolTaskExecutor executor(int size) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(size);
+		executor.setMaxPoolSize(size);
+		executor.initialize();
+		return executor;
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+		when(router.executorFor(Channel.EMAIL)).thenReturn(executor);
+		when(router.executorFor(Channel.SMS)).thenReturn(smsExecutor);
+		when(router.executorFor(Channel.PUSH)).thenReturn(pushExecutor);
+		DataSource dataSource = mock(DataSource.class);
+		when(dataSource.isWrapperFor(HikariDataSource.class)).thenReturn(false);
+
+		limiter = new AdaptiveConcurrencyLimiter(router, new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(limiter, "dataSource", dataSource);
+		ReflectionTestUtils.setField(limiter, "enabled", true);
+		ReflectionTestUtils.setField(limiter, "minLimit", 1);
+		ReflectionTestUtils.setField(limiter, "maxLimit", 20);
+		ReflectionTestUtils.setField(limiter, "minSamples", 10);
+		ReflectionTestUtils.setField(limiter, "errorRateTolerance", 0.1);
+		ReflectionTestUtils.setField(limiter, "latencyTolerance", 2.0);
+		ReflectionTestUtils.setField(limiter, "backoffRatio", 0.75);
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdown();
+		smsExecutor.shutdown();
+		pushExecutor.shutdown();
+	}
+
+	private HikariPoolMXBean useConnectionPool(int maximumPoolSize) throws Exception {
+		HikariDataSource hikari = mock(HikariDataSource.class);
+		HikariPoolMXBean pool = mock(HikariPoolMXBean.class);
+		when(hikari.isWrapperFor(HikariDataSource.class)).thenReturn(true);
+		when(hikari.unwrap(HikariDataSource.class)).thenReturn(hikari);
+		when(hikari.getHikariPoolMXBean()).thenReturn(pool);
+		when(hikari.getMaximumPoolSize()).thenReturn(maximumPoolSize);
+		ReflectionTestUtils.setField(limiter, "dataSource", hikari);
+		return pool;
+	}
+
+	// Records completed sends that each took latencyMs, without any real waiting
+	private void sends(int count, boolean success, long latencyMs) {
+		for (int i = 0; i < count; i++) {
+			limiter.onStart(Channel.EMAIL);
+			limiter.onComplete(Channel.EMAIL, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(latencyMs), success);
+		}
+	}
+
+	private void saturatedWindow(int count, boolean success) {
+		for (int i = 0; i < 8; i++) {
+			limiter.onStart(Channel.EMAIL);
+		}
+		for (int i = 0; i < 8; i++) {
+			limiter.onComplete(Channel.EMAIL, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5), success);
+		}
+		sends(count - 8, success, 5);
+	}
+
+	@Test
+	void saturatedHealthyWindowRaisesTheLimitByOne() {
+		saturatedWindow(20, true);
+		limiter.adjust();
+
+		assertThat(limiter.currentLimit(Channel.EMAIL)).isEqualTo(9);
+		assertThat(executor.getMaxPoolSize()).isEqualTo(9);
+	}
+
+	@Test
+	void unsaturatedWindowKeepsTheLimit() {
+		sends(20, true, 5);
+		limiter.adjust();
+
+		assertThat(limiter.currentLimit(Channel.EMAIL)).isEqualTo(8);
+	}
+
+	@Test
+	void idleWindowKeepsTheLimitAndBaseline() {
+		sends(20, true, 5);
+		limiter.adjust();
+		sends(3, false, 500);
+		limiter.adjust();
+
+		assertThat(limiter.currentLimit(Channel.EMAIL)).isEqualTo(8);
+		// The idle window's slow failures were discarded, so a normal window afterwards is not slow
+		sends(20, true, 5);
+		limiter.adjust();
+		assertThat(limiter.currentLimit(Channel.EMAIL)).isEqualTo(8);
+	}
+
+	@Test
+	void errorRateRiseAboveBaselineCutsTheLimit() {
+		sends(20, true, 5);
+		limiter.adjust();
+		sends(10, true, 5);
+		sends(10, false, 5);
+		limiter.adjust();
+
+		assertThat(limiter.currentLimit(Channel.EMAIL)).isEqualTo(6);
+		assertThat(executor.getCorePoolSize()).isEqualTo(6);
+	}
+
+	@Test
+	void steadyProviderErrorRateIsNotTreatedAsOverload() {
+		for (int window = 0; window < 5; window++) {
+			sends(60, true, 5);
+			sends(40, false, 5);
+			limiter.adjust();
+		}
+
+		assertThat(limiter.currentLimit(Channel.EMAIL)).isEqualTo(8);
+	}
+
+	@Test
+	void outageDoesNotBecomeTheBaseline() {
+		sends(20, true, 5);
+		limiter.adjust();
+		// Provider down: every send fails fast and the backlog keeps the limit saturated
+		for (int window = 0; window < 40; window++) {
+			saturatedWindow(20, false);
+			limiter.adjust();
+			assertThat(limiter.currentLimit(Channel.EMAIL)).isLessThan(8);
+		}
+		assertThat(limiter.currentLimit(Channel.EMAIL)).isEqualTo(1);
+
+		// Once it recovers the limit probes back up
+		saturatedWindow(20, true);
+		limiter.adjust();
+		assertThat(limiter.currentLimit(Channel.EMAIL)).isEqualTo(2);
+	}
+
+	@Test
+	void slowFailuresCountTowardsLatency() {
+		sends(18, true, 5);
+		sends(2, false, 5);
+		limiter.adjust();
+		// Same error rate, but the failures are timeouts
+		sends(18, true, 5);
+		sends(2, false, 200);
+		limiter.adjust();
+
+		assertThat(limiter.currentLimit(Channel.EMAIL)).isEqualTo(6);
+	}
+
+	@Test
+	void channelsTogetherStayWithinTheConnectionPool() throws Exception {
+		useConnectionPool(10);
+
+		saturatedWindow(20, true);
+		limiter.adjust();
+
+		// SMS and push hold one connection each, so email cannot take the tenth
+		assertThat(limiter.currentLimit(Channel.EMAIL)).isEqualTo(8);
+		assertThat(executor.getMaxPoolSize()).isEqualTo(8);
+	}
+
+	@Test
+	void noChannelGrowsWhileThreadsWaitForAConnection() throws Exception {
+		HikariPoolMXBean pool = useConnectionPool(20);
+		when(pool.getThreadsAwaitingConnection()).thenReturn(2);
+
+		saturatedWindow(20, true);
+		limiter.adjust();
+
+		assertThat(limiter.currentLimit(Channel.EMAIL)).isEqualTo(8);
+	}
+
+	@Test
+	void overcommittedLimitsAreTrimmedFromIdleChannelsFirst() throws Exception {
+		smsExecutor.setMaxPoolSize(5);
+		smsExecutor.setCorePoolSize(5);
+		limiter = new AdaptiveConcurrencyLimiter(router, new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(limiter, "enabled", true);
+		ReflectionTestUtils.setField(limiter, "minLimit", 1);
+		ReflectionTestUtils.setField(limiter, "maxLimit", 20);
+		ReflectionTestUtils.setField(limiter, "minSamples", 10);
+		useConnectionPool(10);
+
+		saturatedWindow(20, true);
+		limiter.adjust();
+
+		assertThat(limiter.currentLimit(Channel.EMAIL)).isEqualTo(8);
+		assertThat(limiter.currentLimit(Channel.SMS)).isEqualTo(1);
+		assertThat(smsExecutor.getMaxPoolSize()).isEqualTo(1);
+		assertThat(limiter.currentLimit(Channel.PUSH)).isEqualTo(1);
+	}
+
+	@Test
+	void smallerBusyChannelGrowsAtTheLargestChannelsExpense() throws Exception {
+		useConnectionPool(10);
+		saturatedWindow(20, true);
+		limiter.adjust();
+		assertThat(limiter.currentLimit(Channel.EMAIL)).isEqualTo(8);
+
+		// SMS is saturated at its limit of one while email keeps using all eight
+		for (int i = 0; i < 8; i++) {
+			limiter.onStart(Channel.EMAIL);
+		}
+		for (int i = 0; i < 10; i++) {
+			limiter.onStart(Channel.SMS);
+			limiter.onComplete(Channel.SMS, System.nanoTime(), true);
+		}
+		for (int i = 0; i < 8; i++) {
+			limiter.onComplete(Channel.EMAIL, System.nanoTime(), true);
+		}
+		limiter.adjust();
+
+		assertThat(limiter.currentLimit(Channel.SMS)).isEqualTo(2);
+		assertThat(limiter.currentLimit(Channel.EMAIL)).isEqualTo(7);
+	}
+
+}
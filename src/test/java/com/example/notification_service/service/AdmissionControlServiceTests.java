@@ -0,0 +1,154 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.entity.Notification.Channel;
+import com.example.notification_service.exception.GlobalExceptionHandler;
+import com.example.notification_service.exception.LoadSheddingException;
+import com.example.notification_service.repository.NotificationRepository;
+import com.example.notification_service.service.AdmissionControlService.Priority;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdmissionControlServiceTests {
+
+	private final DeliveryChannelRouter router = mock(DeliveryChannelRouter.class);
+
+	private final NotificationRepository repository = mock(NotificationRepository.class);
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private AdmissionControlService service;
+
+	@BeforeEach
+	void setUp() {
+		service = new AdmissionControlService(meterRegistry);
+		ReflectionTestUtils.setField(service, "deliveryChannelRouter", router);
+		ReflectionTestUtils.setField(service, "notificationRepository", repository);
+		ReflectionTestUtils.setField(service, "dataSource", mock(DataSource.class));
+		ReflectionTestUtils.setField(service, "enabled", true);
+		ReflectionTestUtils.setField(service, "queueDepthSoft", 50);
+		ReflectionTestUtils.setField(service, "queueDepthHard", 90);
+		ReflectionTestUtils.setField(service, "backlogAgeSoftMs", 60_000L);
+		ReflectionTestUtils.setField(service, "backlogAgeHardMs", 300_000L);
+		ReflectionTestUtils.setField(service, "dbPoolSoft", 0.8);
+		ReflectionTestUtils.setField(service, "dbPoolHard", 0.95);
+		ReflectionTestUtils.setField(service, "dbPoolSaturatedMs", 2_000L);
+		ReflectionTestUtils.setField(service, "retryAfterSeconds", 5L);
+	}
+
+	@Test
+	void admitsEverythingBelowSoftThreshold() {
+		when(router.queueDepth(Channel.EMAIL)).thenReturn(49);
+
+		assertThatCode(() -> service.admit(Priority.NORMAL, Channel.EMAIL)).doesNotThrowAnyException();
+		assertThatCode(() -> service.admit(Priority.HIGH, Channel.EMAIL)).doesNotThrowAnyException();
+	}
+
+	@Test
+	void softThresholdShedsOnlyNormalPriority() {
+		when(router.queueDepth(Channel.EMAIL)).thenReturn(50);
+
+		assertThatThrownBy(() -> service.admit(Priority.NORMAL, Channel.EMAIL))
+				.isInstanceOfSatisfying(LoadSheddingException.class,
+						e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(5));
+		assertThatCode(() -> service.admit(Priority.HIGH, Channel.EMAIL)).doesNotThrowAnyException();
+		assertThat(meterRegistry.get("notification.admission.shed").tag("priority", "NORMAL").counter().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	void hardThresholdShedsPaymentsWithLongerRetryAfter() {
+		when(router.queueDepth(Channel.EMAIL)).thenReturn(90);
+
+		assertThatThrownBy(() -> service.admit(Priority.HIGH, Channel.EMAIL))
+				.isInstanceOfSatisfying(LoadSheddingException.class,
+						e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(10));
+	}
+
+	@Test
+	void queuePressureOnOneChannelDoesNotShedAnother() {
+		when(router.queueDepth(Channel.SMS)).thenReturn(95);
+
+		assertThatThrownBy(() -> service.admit(Priority.NORMAL, Channel.SMS)).isInstanceOf(LoadSheddingException.class);
+		assertThatCode(() -> service.admit(Priority.NORMAL, Channel.EMAIL)).doesNotThrowAnyException();
+	}
+
+	@Test
+	void pressureLevelIsTrackedPerChannel() {
+		when(router.queueDepth(Channel.SMS)).thenReturn(95);
+		when(router.queueDepth(Channel.EMAIL)).thenReturn(60);
+
+		service.currentLevel(Channel.SMS);
+		service.currentLevel(Channel.EMAIL);
+
+		assertThat(meterRegistry.get("notification.admission.pressure").tag("channel", "SMS").gauge().value()).isEqualTo(2);
+		assertThat(meterRegistry.get("notification.admission.pressure").tag("channel", "EMAIL").gauge().value()).isEqualTo(1);
+		assertThat(meterRegistry.get("notification.admission.pressure").tag("channel", "PUSH").gauge().value()).isZero();
+	}
+
+	@Test
+	void backlogAgeOfOldestPendingNotificationShedsNormalPriority() {
+		when(repository.findOldestCreatedAtByStatusIn(any()))
+				.thenReturn(Optional.of(LocalDateTime.now().minusMinutes(2)));
+		service.sampleBacklogAge();
+
+		assertThatThrownBy(() -> service.admit(Priority.NORMAL, Channel.EMAIL)).isInstanceOf(LoadSheddingException.class);
+		assertThatCode(() -> service.admit(Priority.HIGH, Channel.EMAIL)).doesNotThrowAnyException();
+	}
+
+	@Test
+	void poolSaturationOnlyShedsPaymentsOnceSustained() throws SQLException {
+		HikariPoolMXBean pool = mock(HikariPoolMXBean.class);
+		when(pool.getThreadsAwaitingConnection()).thenReturn(1);
+		HikariDataSource hikari = mock(HikariDataSource.class);
+		when(hikari.getHikariPoolMXBean()).thenReturn(pool);
+		DataSource dataSource = mock(DataSource.class);
+		when(dataSource.isWrapperFor(HikariDataSource.class)).thenReturn(true);
+		when(dataSource.unwrap(HikariDataSource.class)).thenReturn(hikari);
+		ReflectionTestUtils.setField(service, "dataSource", dataSource);
+
+		assertThatThrownBy(() -> service.admit(Priority.NORMAL, Channel.EMAIL)).isInstanceOf(LoadSheddingException.class);
+		assertThatCode(() -> service.admit(Priority.HIGH, Channel.EMAIL)).doesNotThrowAnyException();
+
+		ReflectionTestUtils.setField(service, "dbPoolSaturatedMs", 0L);
+		assertThatThrownBy(() -> service.admit(Priority.HIGH, Channel.EMAIL)).isInstanceOf(LoadSheddingException.class);
+	}
+
+	@Test
+	void disabledAdmissionControlNeverSheds() {
+		ReflectionTestUtils.setField(service, "enabled", false);
+		when(router.queueDepth(Channel.EMAIL)).thenReturn(100);
+
+		assertThatCode(() -> service.admit(Priority.NORMAL, Channel.EMAIL)).doesNotThrowAnyException();
+	}
+
+	@Test
+	void loadSheddingMapsTo429WithRetryAfter() {
+		ResponseEntity<Map<String, String>> response = new GlobalExceptionHandler()
+				.handleLoadSheddingException(new LoadSheddingException("EMAIL dispatch is overloaded", 10));
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+		assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("10");
+		assertThat(response.getBody()).containsEntry("error", "Too many requests");
+	}
+
+}
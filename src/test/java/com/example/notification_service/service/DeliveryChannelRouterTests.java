@@ -0,0 +1,40 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.entity.Notification.Channel;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeliveryChannelRouterTests {
+
+	private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+	private DeliveryChannelRouter router(Set<String> smsTypes, Set<String> pushTypes) {
+		return new DeliveryChannelRouter(List.of(), executor, executor, executor, smsTypes, pushTypes);
+	}
+
+	@Test
+	void routesConfiguredTypesAndDefaultsToEmail() {
+		DeliveryChannelRouter router = router(Set.of("OTP"), Set.of("ORDER_SHIPPED"));
+
+		assertThat(router.resolve(null, "OTP")).isEqualTo(Channel.SMS);
+		assertThat(router.resolve(null, "ORDER_SHIPPED")).isEqualTo(Channel.PUSH);
+		assertThat(router.resolve(null, "PAYMENT_SUCCESS")).isEqualTo(Channel.EMAIL);
+		assertThat(router.resolve(Channel.PUSH, "OTP")).isEqualTo(Channel.PUSH);
+	}
+
+	@Test
+	void paymentTypesCannotBeRoutedAwayFromEmail() {
+		assertThatThrownBy(() -> router(Set.of("PAYMENT_SUCCESS"), Set.of()))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("PAYMENT_SUCCESS");
+		assertThatThrownBy(() -> router(Set.of(), Set.of("PAYMENT_FAILED")))
+				.isInstanceOf(IllegalStateException.class);
+	}
+
+}
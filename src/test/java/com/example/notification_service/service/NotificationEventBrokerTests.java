@@ -0,0 +1,211 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.dto.NotificationResponse;
+import com.example.notification_service.entity.Notification.NotificationStatus;
+import com.example.notification_service.event.NotificationStatusChangedEvent;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NotificationEventBrokerTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+	private final NotificationService notificationService = mock(NotificationService.class);
+
+	private NotificationEventBroker broker;
+
+	@BeforeEach
+	void setUp() {
+		executor.setCorePoolSize(2);
+		executor.setMaxPoolSize(2);
+		executor.initialize();
+		broker = configure(new NotificationEventBroker(meterRegistry));
+	}
+
+	private NotificationEventBroker configure(NotificationEventBroker broker) {
+		ReflectionTestUtils.setField(broker, "objectMapper", JsonMapper.builder().findAndAddModules().build());
+		ReflectionTestUtils.setField(broker, "sseEventExecutor", executor);
+		ReflectionTestUtils.setField(broker, "notificationService", notificationService);
+		ReflectionTestUtils.setField(broker, "timeoutMs", 60_000L);
+		ReflectionTestUtils.setField(broker, "subscriberQueueCapacity", 8);
+		return broker;
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdown();
+	}
+
+	private static NotificationResponse response(long id, NotificationStatus status) {
+		NotificationResponse response = new NotificationResponse();
+		response.setId(id);
+		response.setTransactionId("TX-" + id);
+		response.setStatus(status);
+		response.setUpdatedAt(LocalDateTime.now());
+		return response;
+	}
+
+	private double subscriptions() {
+		return meterRegistry.get("notification.sse.subscriptions").gauge().value();
+	}
+
+	private void awaitFanOut() throws InterruptedException {
+		executor.getThreadPoolExecutor().shutdown();
+		assertThat(executor.getThreadPoolExecutor().awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+	}
+
+	private static void assertCompleted(SseEmitter emitter) {
+		assertThatThrownBy(() -> emitter.send("late")).isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	void registersBeforeLoadingTheSnapshot() {
+		double[] subscriptionsDuringLoad = new double[1];
+
+		Optional<SseEmitter> emitter = broker.subscribeToNotification(1L, id -> {
+			subscriptionsDuringLoad[0] = subscriptions();
+			return Optional.of(response(id, NotificationStatus.PENDING));
+		});
+
+		assertThat(emitter).isPresent();
+		assertThat(subscriptionsDuringLoad[0]).isEqualTo(1);
+		assertThat(subscriptions()).isEqualTo(1);
+	}
+
+	@Test
+	void terminalSnapshotClosesImmediately() throws InterruptedException {
+		SseEmitter emitter = broker.subscribeToNotification(1L, id -> Optional.of(response(id, NotificationStatus.SENT)))
+				.orElseThrow();
+		awaitFanOut();
+
+		assertCompleted(emitter);
+		assertThat(subscriptions()).isZero();
+	}
+
+	@Test
+	void unknownNotificationIsNotSubscribed() {
+		assertThat(broker.subscribeToNotification(1L, id -> Optional.empty())).isEmpty();
+		assertThat(subscriptions()).isZero();
+	}
+
+	@Test
+	void terminalEventClosesTheNotificationStream() throws InterruptedException {
+		SseEmitter emitter = broker.subscribeToNotification(1L, id -> Optional.of(response(id, NotificationStatus.RETRYING)))
+				.orElseThrow();
+
+		broker.onStatusChanged(new NotificationStatusChangedEvent(response(1L, NotificationStatus.FAILED)));
+		awaitFanOut();
+
+		assertCompleted(emitter);
+	}
+
+	@Test
+	void heartbeatClosesStreamsFinishedOnAnotherNode() throws InterruptedException {
+		SseEmitter emitter = broker.subscribeToNotification(1L, id -> Optional.of(response(id, NotificationStatus.RETRYING)))
+				.orElseThrow();
+		when(notificationService.getFinishedNotifications(Set.of(1L))).thenReturn(List.of(response(1L, NotificationStatus.SENT)));
+
+		broker.heartbeat();
+		awaitFanOut();
+
+		assertCompleted(emitter);
+	}
+
+	@Test
+	void stalledSubscriberDoesNotHoldUpOthers() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		StalledEmitter stalled = new StalledEmitter(release);
+		RecordingEmitter healthy = new RecordingEmitter(2);
+		Queue<SseEmitter> emitters = new ArrayDeque<>(List.of(stalled, healthy));
+		NotificationEventBroker broker = configure(new NotificationEventBroker(meterRegistry) {
+			@Override
+			SseEmitter newEmitter() {
+				return emitters.remove();
+			}
+		});
+		broker.subscribeToTransaction("TX-1", transactionId -> List.of());
+		broker.subscribeToTransaction("TX-1", transactionId -> List.of());
+
+		broker.onStatusChanged(new NotificationStatusChangedEvent(response(1L, NotificationStatus.SENDING)));
+		assertThat(stalled.writing.await(5, TimeUnit.SECONDS)).isTrue();
+		broker.onStatusChanged(new NotificationStatusChangedEvent(response(1L, NotificationStatus.SENT)));
+
+		try {
+			assertThat(healthy.received.await(5, TimeUnit.SECONDS)).isTrue();
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	void transactionStreamRegistersBeforeLoading() {
+		double[] subscriptionsDuringLoad = new double[1];
+
+		broker.subscribeToTransaction("TX-1", transactionId -> {
+			subscriptionsDuringLoad[0] = subscriptions();
+			return List.of(response(1L, NotificationStatus.SENT));
+		});
+
+		assertThat(subscriptionsDuringLoad[0]).isEqualTo(1);
+		assertThat(subscriptions()).isEqualTo(1);
+	}
+
+	private static final class StalledEmitter extends SseEmitter {
+
+		private final CountDownLatch writing = new CountDownLatch(1);
+
+		private final CountDownLatch release;
+
+		StalledEmitter(CountDownLatch release) {
+			this.release = release;
+		}
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			writing.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static final class RecordingEmitter extends SseEmitter {
+
+		private final CountDownLatch received;
+
+		RecordingEmitter(int expected) {
+			this.received = new CountDownLatch(expected);
+		}
+
+		@Override
+		public void send(SseEventBuilder builder) {
+			received.countDown();
+		}
+	}
+
+}
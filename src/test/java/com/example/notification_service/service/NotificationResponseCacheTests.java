@@ -0,0 +1,63 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.dto.NotificationResponse;
+import com.example.notification_service.entity.Notification.NotificationStatus;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NotificationResponseCacheTests {
+
+	private static final LocalDateTime V1 = LocalDateTime.of(2026, 1, 11, 10, 0, 0, 100_000_000);
+
+	private static final LocalDateTime V2 = V1.plusNanos(1_000);
+
+	private final NotificationResponseCache cache = new NotificationResponseCache(
+			JsonMapper.builder().findAndAddModules().build(), new SimpleMeterRegistry(), 100, 60_000);
+
+	private static NotificationResponse response(NotificationStatus status, LocalDateTime updatedAt) {
+		NotificationResponse response = new NotificationResponse();
+		response.setId(1L);
+		response.setStatus(status);
+		response.setUpdatedAt(updatedAt);
+		return response;
+	}
+
+	private String get(AtomicInteger loads, NotificationResponse stored) {
+		return cache.getOrLoad(1L, id -> {
+			loads.incrementAndGet();
+			return Optional.of(stored);
+		}).map(json -> new String(json, StandardCharsets.UTF_8)).orElseThrow();
+	}
+
+	@Test
+	void olderWriteNeverReplacesNewerEntry() {
+		AtomicInteger loads = new AtomicInteger();
+		cache.update(response(NotificationStatus.SENT, V2));
+		cache.update(response(NotificationStatus.RETRYING, V1));
+
+		assertThat(get(loads, response(NotificationStatus.RETRYING, V1))).contains("SENT");
+		assertThat(loads).hasValue(0);
+	}
+
+	@Test
+	void tombstoneRejectsStaleReadThroughUntilTheNewVersionIsLoaded() {
+		AtomicInteger loads = new AtomicInteger();
+		cache.update(response(NotificationStatus.PENDING, V1));
+		cache.invalidate(1L, V2);
+
+		// A replica or an earlier snapshot still returns V1; it is served but not cached
+		assertThat(get(loads, response(NotificationStatus.PENDING, V1))).contains("PENDING");
+		assertThat(get(loads, response(NotificationStatus.RETRYING, V2))).contains("RETRYING");
+		assertThat(get(loads, response(NotificationStatus.PENDING, V1))).contains("RETRYING");
+		assertThat(loads).hasValue(2);
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.NotificationServiceApplication;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PartitionOwnershipServiceTests {
+
+	private static ConfigurableApplicationContext startNode(String nodeId) {
+		return startNode("clustertest", nodeId);
+	}
+
+	private static ConfigurableApplicationContext startNode(String database, String nodeId, String... extraArgs) {
+		List<String> args = new ArrayList<>(List.of(
+				"--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+				"--spring.jpa.hibernate.ddl-auto=update",
+				"--spring.jpa.show-sql=false",
+				"--notification.cluster.enabled=true",
+				"--notification.cluster.partitions=16",
+				"--notification.cluster.heartbeat-interval-ms=3600000",
+				"--notification.cluster.node-id=" + nodeId));
+		args.addAll(List.of(extraArgs));
+		return new SpringApplicationBuilder(NotificationServiceApplication.class)
+				.web(WebApplicationType.NONE)
+				.run(args.toArray(String[]::new));
+	}
+
+	@Test
+	void partitionsRebalanceWhenNodesJoinAndLeave() {
+		try (ConfigurableApplicationContext nodeA = startNode("node-a")) {
+			PartitionOwnershipService ownershipA = nodeA.getBean(PartitionOwnershipService.class);
+			ownershipA.heartbeat();
+			assertThat(ownershipA.getOwnedPartitions()).hasSize(16);
+
+			try (ConfigurableApplicationContext nodeB = startNode("node-b")) {
+				PartitionOwnershipService ownershipB = nodeB.getBean(PartitionOwnershipService.class);
+				ownershipB.heartbeat();
+				ownershipA.heartbeat();
+				ownershipB.heartbeat();
+
+				assertThat(ownershipA.getOwnedPartitions()).hasSize(8);
+				assertThat(ownershipB.getOwnedPartitions()).hasSize(8);
+				Set<Integer> all = new HashSet<>(ownershipA.getOwnedPartitions());
+				all.addAll(ownershipB.getOwnedPartitions());
+				assertThat(all).hasSize(16);
+			}
+
+			ownershipA.heartbeat();
+			assertThat(ownershipA.getOwnedPartitions()).hasSize(16);
+		}
+	}
+
+	@Test
+	void ownershipLapsesBeforeTheLeaseWhenHeartbeatsStop() throws InterruptedException {
+		try (ConfigurableApplicationContext node = startNode("clusterlapse", "node-lapse",
+				"--notification.cluster.lease-duration-ms=1500",
+				"--notification.cluster.lease-safety-margin-ms=1000")) {
+			PartitionOwnershipService ownership = node.getBean(PartitionOwnershipService.class);
+			ownership.heartbeat();
+			assertThat(ownership.getOwnedPartitions()).hasSize(16);
+			assertThat(ownership.owns(0)).isTrue();
+
+			Thread.sleep(600);
+
+			assertThat(ownership.getOwnedPartitions()).isEmpty();
+			assertThat(ownership.owns(0)).isFalse();
+
+			ownership.heartbeat();
+			assertThat(ownership.getOwnedPartitions()).hasSize(16);
+		}
+	}
+
+}